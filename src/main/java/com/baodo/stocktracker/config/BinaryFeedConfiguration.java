@@ -0,0 +1,23 @@
+package com.baodo.stocktracker.config;
+
+import com.baodo.stocktracker.controller.BinaryFeedHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Plain WebSocket (no SockJS, no STOMP) endpoint of the binary price feed, next to the STOMP endpoint on /ws.
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class BinaryFeedConfiguration implements WebSocketConfigurer {
+    private final BinaryFeedHandler binaryFeedHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(binaryFeedHandler, "/feed").setAllowedOriginPatterns("*");
+    }
+}
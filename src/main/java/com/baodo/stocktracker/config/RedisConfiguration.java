@@ -1,5 +1,7 @@
 package com.baodo.stocktracker.config;
 
+import com.baodo.stocktracker.model.CachedQuote;
+import com.baodo.stocktracker.service.QuoteCodec;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -23,4 +25,15 @@ public class RedisConfiguration {
 
         return template;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public RedisTemplate<String, CachedQuote> quoteRedisTemplate(RedisConnectionFactory factory) {
+        RedisTemplate<String, CachedQuote> template = new RedisTemplate<>();
+        template.setConnectionFactory(factory);
+
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new QuoteCodec());
+
+        return template;
+    }
+}
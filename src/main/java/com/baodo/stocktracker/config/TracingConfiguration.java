@@ -0,0 +1,28 @@
+package com.baodo.stocktracker.config;
+
+import brave.handler.SpanHandler;
+import com.baodo.stocktracker.service.TailSamplingSpanHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TracingConfiguration {
+
+    /**
+     * In the control-plane tier, traces are exported by tail sampling; head sampling
+     * ({@code management.tracing.sampling.probability}) should stay at 1.0 so the sampler sees every trace.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "stocktracker.tracing.tier", havingValue = "CONTROL_PLANE", matchIfMissing = true)
+    public TailSamplingSpanHandler tailSamplingSpanHandler(ObjectProvider<SpanHandler> spanHandlers, MeterRegistry meterRegistry,
+                                                           @Value("${stocktracker.tracing.tail.latency-threshold-ms:500}") long latencyThresholdMs,
+                                                           @Value("${stocktracker.tracing.tail.max-traces:1000}") int maxTraces) {
+        return new TailSamplingSpanHandler(() -> spanHandlers.orderedStream()
+                .filter(handler -> !(handler instanceof TailSamplingSpanHandler))
+                .toList(), latencyThresholdMs, maxTraces, meterRegistry);
+    }
+}
@@ -0,0 +1,11 @@
+package com.baodo.stocktracker.config;
+
+/**
+ * How much of the application opens spans ({@code stocktracker.tracing.tier}).
+ */
+public enum TracingTier {
+    // Spans on every operation, including per-tick Redis calls; every trace is exported. For debugging only.
+    FULL,
+    // Spans on control-plane requests only, exported by the tail sampler when slow or failed; the tick path uses meters
+    CONTROL_PLANE
+}
@@ -1,5 +1,6 @@
 package com.baodo.stocktracker.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -7,7 +8,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Configuration
 public class WebClientConfiguration {
     @Bean
-    public WebClient finnhubClient(WebClient.Builder builder) {
-        return builder.baseUrl("https://finnhub.io/api/v1").build();
+    public WebClient finnhubClient(WebClient.Builder builder, @Value("${finnhub.api.base-url:https://finnhub.io/api/v1}") String baseUrl) {
+        return builder.baseUrl(baseUrl).build();
     }
 }
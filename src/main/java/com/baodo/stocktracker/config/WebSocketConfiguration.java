@@ -1,14 +1,25 @@
 package com.baodo.stocktracker.config;
 
+import com.baodo.stocktracker.service.StompOutboundPolicy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfiguration implements WebSocketMessageBrokerConfigurer {
+    private final StompOutboundPolicy stompOutboundPolicy;
+
+    @Value("${stocktracker.ws.outbound.channel-threads:0}")
+    private int outboundChannelThreads;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
@@ -20,4 +31,20 @@ public class WebSocketConfiguration implements WebSocketMessageBrokerConfigurer
         registry.enableSimpleBroker("/topic");
         registry.setUserDestinationPrefix("/user");
     }
-}
\ No newline at end of file
+
+    /**
+     * No send time or buffer size limits: the outbound policy's session queues every frame and returns at once, so
+     * Spring's own send buffer never fills. Backpressure is configured through {@code stocktracker.ws.outbound.*}.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(stompOutboundPolicy::decorate);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (outboundChannelThreads > 0) {
+            registration.taskExecutor().corePoolSize(outboundChannelThreads).maxPoolSize(outboundChannelThreads);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.baodo.stocktracker.controller;
+
+import com.baodo.stocktracker.model.BarSeries;
+import com.baodo.stocktracker.model.SymbolMarketState;
+import com.baodo.stocktracker.service.ClusterCoordinator;
+import com.baodo.stocktracker.service.MarketStateService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@CrossOrigin(origins = "*")
+@RestController
+@Slf4j
+@RequestMapping("/bars")
+@AllArgsConstructor
+public class BarsController {
+    private static final int MAX_LIMIT = 500;
+
+    private MarketStateService marketStateService;
+
+    private ClusterCoordinator clusterCoordinator;
+
+    /**
+     * Recent OHLCV bars of a tracked symbol, oldest first. {@code resolution} is one of 1s, 1m or 5m.
+     */
+    @GetMapping
+    public ResponseEntity<List<BarSeries.Bar>> getBars(@RequestParam String symbol,
+                                                       @RequestParam(defaultValue = "1m") String resolution,
+                                                       @RequestParam(defaultValue = "60") int limit) {
+        log.info("Received request to get [{}] bars for symbol [{}], limit {}", resolution, symbol, limit);
+
+        SymbolMarketState.Resolution barResolution = SymbolMarketState.Resolution.fromLabel(resolution);
+        if (barResolution == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "resolution must be one of 1s, 1m, 5m");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        requireLeader();
+        List<BarSeries.Bar> bars = marketStateService.recentBars(symbol, barResolution, limit);
+        if (bars == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No market data for symbol " + symbol);
+        }
+        return ResponseEntity.ok(bars);
+    }
+
+    @GetMapping("/state")
+    public ResponseEntity<SymbolMarketState.Snapshot> getMarketState(@RequestParam String symbol) {
+        requireLeader();
+        SymbolMarketState.Snapshot snapshot = marketStateService.snapshot(symbol);
+        if (snapshot == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No market data for symbol " + symbol);
+        }
+        return ResponseEntity.ok(snapshot);
+    }
+
+    /**
+     * Only the cluster leader receives trades, so a follower's market state never gets past the seeded day stats.
+     */
+    private void requireLeader() {
+        if (clusterCoordinator.isEnabled() && !clusterCoordinator.isLeader()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Bars are only kept by the cluster leader, node " + clusterCoordinator.getNodeId() + " is a follower");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.baodo.stocktracker.controller;
+
+import com.baodo.stocktracker.dto.request.WatchlistRequest;
+import com.baodo.stocktracker.service.BinaryFeedService;
+import com.baodo.stocktracker.service.WebSocketService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Raw WebSocket endpoint of the binary feed. Clients send their full symbol set as a JSON text frame
+ * ({@code {"symbols":["AAPL","MSFT"]}}, the same request as /app/watchlist) and receive binary frames back;
+ * errors come back as {@code {"type":"error","message":...}} text frames.
+ */
+@Component
+@Slf4j
+@AllArgsConstructor
+public class BinaryFeedHandler extends TextWebSocketHandler {
+    // Keeps binary sessions apart from STOMP session ids in the shared subscription registry
+    private static final String SESSION_PREFIX = "binary-";
+
+    private final WebSocketService webSocketService;
+
+    private final BinaryFeedService binaryFeedService;
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        log.info("Binary feed session [{}] connected", session.getId());
+        binaryFeedService.addSession(session);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        WatchlistRequest request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), WatchlistRequest.class);
+        } catch (Exception ex) {
+            binaryFeedService.sendError(session.getId(), "Expected {\"symbols\":[...]}");
+            return;
+        }
+
+        webSocketService.handleWatchlist(SESSION_PREFIX + session.getId(), request.getSymbols(),
+                        snapshot -> binaryFeedService.deliver(session.getId(), snapshot))
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        log.warn("Binary feed request of session [{}] failed: {}", session.getId(), cause.getMessage());
+                        binaryFeedService.sendError(session.getId(), cause.getMessage() != null ? cause.getMessage() : "Request failed");
+                    }
+                });
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        log.info("Binary feed session [{}] disconnected", session.getId());
+        binaryFeedService.removeSession(session.getId());
+        webSocketService.releaseSession(SESSION_PREFIX + session.getId());
+    }
+}
@@ -0,0 +1,22 @@
+package com.baodo.stocktracker.controller;
+
+import com.baodo.stocktracker.service.LatencyMonitor;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/latency: per-stage tick-to-client latency percentiles and per-symbol rates.
+ */
+@Component
+@Endpoint(id = "latency")
+@AllArgsConstructor
+public class LatencyEndpoint {
+    private final LatencyMonitor latencyMonitor;
+
+    @ReadOperation
+    public LatencyMonitor.Report latency() {
+        return latencyMonitor.report();
+    }
+}
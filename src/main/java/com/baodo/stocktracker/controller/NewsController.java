@@ -5,10 +5,19 @@ import com.baodo.stocktracker.service.NewsService;
 import io.lettuce.core.dynamic.annotation.Param;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @CrossOrigin(origins = "*")
 @RestController
@@ -16,16 +25,97 @@ import java.util.List;
 @RequestMapping("/company-news")
 @AllArgsConstructor
 public class NewsController {
+    private static final int MAX_STREAM_LIMIT = 200;
+
+    private static final Set<String> NEWS_FIELDS = Set.of("category", "datetime", "headline", "id", "image", "related", "source", "summary", "url");
+
     private NewsService newsService;
 
     @GetMapping
-    public ResponseEntity<?> getCompanyNews(@RequestParam String symbol) {
+    public Mono<ResponseEntity<List<NewsItemResponse>>> getCompanyNews(@RequestParam String symbol) {
         log.info("Received request to get company news for symbol [{}]", symbol);
 
-        List<NewsItemResponse> newsResponse = this.newsService.getCompanyNews(symbol);
+        return this.newsService.getCompanyNews(symbol)
+                .map(newsResponse -> {
+                    log.info("Financial news request for symbol [{}] has completed", symbol);
+                    return ResponseEntity.ok(newsResponse);
+                });
+    }
+
+    /**
+     * Streams news as NDJSON, newest first. {@code cursor} is the {@code datetime:id} of the last item already
+     * received; {@code fields} limits each item to the listed properties ({@code id} and {@code datetime} are
+     * always included so clients can build the next cursor).
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> streamCompanyNews(@RequestParam String symbol,
+                                                       @RequestParam(defaultValue = "20") int limit,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) List<String> fields) {
+        log.info("Received request to stream company news for symbol [{}], limit {}, cursor [{}], fields {}", symbol, limit, cursor, fields);
+
+        if (limit < 1 || limit > MAX_STREAM_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_STREAM_LIMIT);
+        }
+        long[] after = parseCursor(cursor);
+        Set<String> projection = parseFields(fields);
+
+        return this.newsService.streamCompanyNews(symbol)
+                .filter(item -> after == null || item.getDatetime() < after[0] || (item.getDatetime() == after[0] && item.getId() < after[1]))
+                .take(limit)
+                .map(item -> project(item, projection))
+                .doOnComplete(() -> log.info("Financial news stream for symbol [{}] has completed", symbol));
+    }
+
+    private static long[] parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int separator = cursor.indexOf(':');
+        try {
+            if (separator < 0) {
+                return new long[]{Long.parseLong(cursor), Long.MAX_VALUE};
+            }
+            return new long[]{Long.parseLong(cursor.substring(0, separator)), Long.parseLong(cursor.substring(separator + 1))};
+        } catch (NumberFormatException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor must be formatted as datetime:id");
+        }
+    }
+
+    private static Set<String> parseFields(List<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return NEWS_FIELDS;
+        }
+        Set<String> projection = new LinkedHashSet<>();
+        for (String field : fields) {
+            String name = field.trim();
+            if (!NEWS_FIELDS.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field [" + name + "], expected one of " + NEWS_FIELDS);
+            }
+            projection.add(name);
+        }
+        return projection;
+    }
 
-        log.info("Financial news request for symbol [{}] has completed", symbol);
-        return ResponseEntity.ok(newsResponse);
+    private static Map<String, Object> project(NewsItemResponse item, Set<String> projection) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        projected.put("id", item.getId());
+        projected.put("datetime", item.getDatetime());
+        for (String field : projection) {
+            switch (field) {
+                case "category" -> projected.put(field, item.getCategory());
+                case "headline" -> projected.put(field, item.getHeadline());
+                case "image" -> projected.put(field, item.getImage());
+                case "related" -> projected.put(field, item.getRelated());
+                case "source" -> projected.put(field, item.getSource());
+                case "summary" -> projected.put(field, item.getSummary());
+                case "url" -> projected.put(field, item.getUrl());
+                default -> {
+                    // id and datetime are always present
+                }
+            }
+        }
+        return projected;
     }
 
 }
@@ -0,0 +1,24 @@
+package com.baodo.stocktracker.controller;
+
+import com.baodo.stocktracker.service.StompOutboundPolicy;
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/stomp: outbound queue depth, sent/conflated/dropped frames and downgrade state per open STOMP session.
+ */
+@Component
+@Endpoint(id = "stomp")
+@AllArgsConstructor
+public class StompSessionsEndpoint {
+    private final StompOutboundPolicy stompOutboundPolicy;
+
+    @ReadOperation
+    public Map<String, StompOutboundPolicy.SessionStats> sessions() {
+        return stompOutboundPolicy.sessionStats();
+    }
+}
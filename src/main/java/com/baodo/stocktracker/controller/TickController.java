@@ -0,0 +1,52 @@
+package com.baodo.stocktracker.controller;
+
+import com.baodo.stocktracker.model.BarSeries;
+import com.baodo.stocktracker.model.SymbolMarketState;
+import com.baodo.stocktracker.model.Tick;
+import com.baodo.stocktracker.service.TickReplayService;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@CrossOrigin(origins = "*")
+@RestController
+@Slf4j
+@RequestMapping("/ticks")
+@AllArgsConstructor
+public class TickController {
+    private TickReplayService tickReplayService;
+
+    /**
+     * Journaled trades of a symbol between {@code from} and {@code to} (epoch millis, inclusive), in arrival order.
+     */
+    @GetMapping
+    public ResponseEntity<List<Tick>> getTicks(@RequestParam String symbol,
+                                               @RequestParam long from,
+                                               @RequestParam long to,
+                                               @RequestParam(defaultValue = "1000") int limit) {
+        log.info("Received request to replay ticks for symbol [{}] from {} to {}, limit {}", symbol, from, to, limit);
+        return ResponseEntity.ok(tickReplayService.ticks(symbol, from, to, limit));
+    }
+
+    /**
+     * Bars rebuilt from the journaled trades, oldest first. {@code resolution} is one of 1s, 1m or 5m.
+     */
+    @GetMapping("/bars")
+    public ResponseEntity<List<BarSeries.Bar>> getBars(@RequestParam String symbol,
+                                                       @RequestParam(defaultValue = "1m") String resolution,
+                                                       @RequestParam long from,
+                                                       @RequestParam long to) {
+        log.info("Received request to rebuild [{}] bars for symbol [{}] from {} to {}", resolution, symbol, from, to);
+
+        SymbolMarketState.Resolution barResolution = SymbolMarketState.Resolution.fromLabel(resolution);
+        if (barResolution == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "resolution must be one of 1s, 1m, 5m");
+        }
+        return ResponseEntity.ok(tickReplayService.bars(symbol, barResolution, from, to));
+    }
+}
@@ -1,6 +1,10 @@
 package com.baodo.stocktracker.controller;
 
+import com.baodo.stocktracker.dto.request.SymbolResyncRequest;
 import com.baodo.stocktracker.dto.request.SymbolTrackingRequest;
+import com.baodo.stocktracker.dto.request.TickReplayRequest;
+import com.baodo.stocktracker.dto.request.WatchlistRequest;
+import com.baodo.stocktracker.service.TickReplayService;
 import com.baodo.stocktracker.service.WebSocketService;
 import io.micrometer.tracing.Span;
 import io.micrometer.tracing.Tracer;
@@ -11,7 +15,10 @@ import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
-import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.CompletionException;
 
 @Controller
 @Slf4j
@@ -21,24 +28,80 @@ public class WebSocketController {
 
     private Tracer tracer;
 
+    private TickReplayService tickReplayService;
+
     private final SimpMessagingTemplate messagingTemplate;
 
     @MessageMapping("/trackingSymbol")
     public void trackingSymbol(@Payload SymbolTrackingRequest request, @Header("simpSessionId") String sessionId) {
-        Span wsSpan = tracer.nextSpan().name("WebSocketController - trackingSymbol: Received Request");
-        try (Tracer.SpanInScope ignored = tracer.withSpan(wsSpan.start())) {
+        Span wsSpan = tracer.nextSpan().name("WebSocketController - trackingSymbol: Received Request").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(wsSpan)) {
             log.info("Received tracking symbol request for session [{}]: [{}] -> [{}]", sessionId, request.getCurrentSymbol(), request.getNewSymbol());
-            webSocketService.handleTrackingSymbol(sessionId, request.getCurrentSymbol(), request.getNewSymbol());
-            log.info("Tracking symbol request [{}] for session: [{}] has completed", request.getNewSymbol(), sessionId);
+            webSocketService.handleTrackingSymbol(sessionId, request.getCurrentSymbol(), request.getNewSymbol())
+                    .whenComplete((result, ex) -> {
+                        if (ex == null) {
+                            log.info("Tracking symbol request [{}] for session: [{}] has completed", request.getNewSymbol(), sessionId);
+                        } else {
+                            sendError(sessionId, request.getNewSymbol(), ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                        }
+                        wsSpan.end();
+                    });
         } catch (Exception ex) {
-            String errorMessage = ex.getMessage() != null ? ex.getMessage() : "An unexpected error occurred while tracking symbol [" + request.getNewSymbol() + "]";
-
-            messagingTemplate.convertAndSend("/topic/errors/" + sessionId, errorMessage);
+            sendError(sessionId, request.getNewSymbol(), ex);
+            wsSpan.end();
+        }
+    }
 
-            log.warn("Error tracking symbol for session [{}]: {}", sessionId, errorMessage, ex);
-        } finally {
+    @MessageMapping("/watchlist")
+    public void watchlist(@Payload WatchlistRequest request, @Header("simpSessionId") String sessionId) {
+        Span wsSpan = tracer.nextSpan().name("WebSocketController - watchlist: Received Request").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(wsSpan)) {
+            log.info("Received watchlist request for session [{}]: {}", sessionId, request.getSymbols());
+            webSocketService.handleWatchlist(sessionId, request.getSymbols())
+                    .whenComplete((result, ex) -> {
+                        if (ex == null) {
+                            log.info("Watchlist request for session: [{}] has completed", sessionId);
+                        } else {
+                            sendError(sessionId, "watchlist", ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                        }
+                        wsSpan.end();
+                    });
+        } catch (Exception ex) {
+            sendError(sessionId, "watchlist", ex);
             wsSpan.end();
         }
     }
 
+    @MessageMapping("/resync")
+    public void resync(@Payload SymbolResyncRequest request, @Header("simpSessionId") String sessionId) {
+        log.info("Received resync request for session [{}]: [{}]", sessionId, request.getSymbol());
+        webSocketService.resync(sessionId, request.getSymbol())
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        sendError(sessionId, request.getSymbol(), ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                    }
+                });
+    }
+
+    /**
+     * Sends the journaled ticks of a symbol to /topic/replay/{sessionId}, e.g. to backfill a chart.
+     */
+    @MessageMapping("/replay")
+    public void replay(@Payload TickReplayRequest request, @Header("simpSessionId") String sessionId) {
+        log.info("Received replay request for session [{}]: [{}] from {} to {}", sessionId, request.getSymbol(), request.getFrom(), request.getTo());
+        // Reading up to MAX_TICKS records off the journal must not hold up the inbound channel
+        Mono.fromCallable(() -> tickReplayService.ticks(request.getSymbol(), request.getFrom(), request.getTo(), request.getLimit()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(ticks -> messagingTemplate.convertAndSend("/topic/replay/" + sessionId, ticks),
+                        ex -> sendError(sessionId, request.getSymbol(), ex));
+    }
+
+    private void sendError(String sessionId, String symbol, Throwable ex) {
+        String errorMessage = ex.getMessage() != null ? ex.getMessage() : "An unexpected error occurred while tracking symbol [" + symbol + "]";
+
+        messagingTemplate.convertAndSend("/topic/errors/" + sessionId, errorMessage);
+
+        log.warn("Error tracking symbol for session [{}]: {}", sessionId, errorMessage, ex);
+    }
+
 }
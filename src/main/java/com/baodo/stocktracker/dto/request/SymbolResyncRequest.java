@@ -0,0 +1,10 @@
+package com.baodo.stocktracker.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SymbolResyncRequest {
+    private String symbol;
+}
@@ -0,0 +1,16 @@
+package com.baodo.stocktracker.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class TickReplayRequest {
+    private String symbol;
+
+    private long from;
+
+    private long to;
+
+    private int limit = 1000;
+}
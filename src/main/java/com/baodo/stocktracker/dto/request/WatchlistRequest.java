@@ -0,0 +1,12 @@
+package com.baodo.stocktracker.dto.request;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class WatchlistRequest {
+    private List<String> symbols;
+}
@@ -0,0 +1,110 @@
+package com.baodo.stocktracker.model;
+
+import lombok.Getter;
+
+/**
+ * Fixed-size ring of OHLCV bars for one resolution, stored column-wise in preallocated primitive arrays
+ * so a trade only writes into existing slots. Not thread-safe; {@link SymbolMarketState} guards it.
+ */
+public class BarSeries {
+    @Getter
+    private final long intervalMs;
+
+    private final int capacity;
+
+    private final long[] start;
+
+    private final double[] open;
+
+    private final double[] high;
+
+    private final double[] low;
+
+    private final double[] close;
+
+    private final double[] volume;
+
+    private final double[] notional;
+
+    private final int[] trades;
+
+    // Slot of the newest bar, -1 while empty
+    private int head = -1;
+
+    private int size;
+
+    public BarSeries(long intervalMs, int capacity) {
+        this.intervalMs = intervalMs;
+        this.capacity = capacity;
+        this.start = new long[capacity];
+        this.open = new double[capacity];
+        this.high = new double[capacity];
+        this.low = new double[capacity];
+        this.close = new double[capacity];
+        this.volume = new double[capacity];
+        this.notional = new double[capacity];
+        this.trades = new int[capacity];
+    }
+
+    /**
+     * Adds a trade to the bar it belongs to. Late trades update an older bar if it is still in the ring.
+     * @return true if the trade opened a new bar
+     */
+    public boolean add(double price, double quantity, long timestamp) {
+        long bucket = timestamp - Math.floorMod(timestamp, intervalMs);
+
+        if (head < 0 || bucket > start[head]) {
+            head = (head + 1) % capacity;
+            if (size < capacity) {
+                size++;
+            }
+            start[head] = bucket;
+            open[head] = price;
+            high[head] = price;
+            low[head] = price;
+            close[head] = price;
+            volume[head] = quantity;
+            notional[head] = price * quantity;
+            trades[head] = 1;
+            return true;
+        }
+
+        int slot = head;
+        for (int i = 0; i < size && start[slot] > bucket; i++) {
+            slot = (slot - 1 + capacity) % capacity;
+        }
+        if (start[slot] != bucket) {
+            return false;
+        }
+
+        if (slot == head) {
+            close[slot] = price;
+        }
+        high[slot] = Math.max(high[slot], price);
+        low[slot] = Math.min(low[slot], price);
+        volume[slot] += quantity;
+        notional[slot] += price * quantity;
+        trades[slot]++;
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies a bar out of the ring; {@code age} 0 is the newest bar.
+     */
+    public Bar get(int age) {
+        if (age < 0 || age >= size) {
+            throw new IndexOutOfBoundsException("age " + age + " outside of " + size + " bars");
+        }
+        int slot = (head - age + capacity) % capacity;
+        return new Bar(start[slot], intervalMs, open[slot], high[slot], low[slot], close[slot], volume[slot],
+                volume[slot] > 0 ? notional[slot] / volume[slot] : close[slot], trades[slot]);
+    }
+
+    public record Bar(long start, long intervalMs, double open, double high, double low, double close,
+                      double volume, double vwap, int trades) {
+    }
+}
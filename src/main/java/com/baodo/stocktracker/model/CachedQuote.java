@@ -0,0 +1,51 @@
+package com.baodo.stocktracker.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+
+import java.util.concurrent.TimeUnit;
+
+@Value
+public class CachedQuote {
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    double price;
+
+    // Volume of the latest update
+    double volume;
+
+    // Timestamp of the latest update (ms)
+    long timestamp;
+
+    double dayHigh;
+
+    double dayLow;
+
+    @JsonCreator
+    public CachedQuote(@JsonProperty("price") double price,
+                       @JsonProperty("volume") double volume,
+                       @JsonProperty("timestamp") long timestamp,
+                       @JsonProperty("dayHigh") double dayHigh,
+                       @JsonProperty("dayLow") double dayLow) {
+        this.price = price;
+        this.volume = volume;
+        this.timestamp = timestamp;
+        this.dayHigh = dayHigh;
+        this.dayLow = dayLow;
+    }
+
+    /**
+     * Folds a trade into the quote; a trade from a later (UTC) day than the quote starts a new day high/low.
+     */
+    public CachedQuote withTrade(double price, double volume, long timestamp) {
+        if (Math.floorDiv(timestamp, DAY_MS) > Math.floorDiv(this.timestamp, DAY_MS)) {
+            return ofTrade(price, volume, timestamp);
+        }
+        return new CachedQuote(price, volume, timestamp, Math.max(dayHigh, price), dayLow > 0 ? Math.min(dayLow, price) : price);
+    }
+
+    public static CachedQuote ofTrade(double price, double volume, long timestamp) {
+        return new CachedQuote(price, volume, timestamp, price, price);
+    }
+}
@@ -0,0 +1,24 @@
+package com.baodo.stocktracker.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class MutableTrade {
+    private String symbol;
+
+    private double price;
+
+    private double volume;
+
+    // Trade timestamp (ms)
+    private long timestamp;
+
+    public void reset() {
+        this.symbol = null;
+        this.price = 0.0;
+        this.volume = 0.0;
+        this.timestamp = 0L;
+    }
+}
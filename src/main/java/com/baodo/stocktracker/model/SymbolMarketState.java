@@ -0,0 +1,213 @@
+package com.baodo.stocktracker.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Live market state of one symbol built from its trades: 1s/1m/5m bars, running day VWAP, day open/high/low/volume
+ * and a small ring of the most recent trades.
+ * Trades come from a single upstream reader, reads from REST and publish threads; both sides lock the instance,
+ * which is uncontended in practice and keeps the trade path free of allocation.
+ */
+public class SymbolMarketState {
+    public enum Resolution {
+        SECOND_1("1s", TimeUnit.SECONDS.toMillis(1)),
+        MINUTE_1("1m", TimeUnit.MINUTES.toMillis(1)),
+        MINUTE_5("5m", TimeUnit.MINUTES.toMillis(5));
+
+        private final String label;
+
+        private final long intervalMs;
+
+        Resolution(String label, long intervalMs) {
+            this.label = label;
+            this.intervalMs = intervalMs;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getIntervalMs() {
+            return intervalMs;
+        }
+
+        public static Resolution fromLabel(String label) {
+            for (Resolution resolution : values()) {
+                if (resolution.label.equals(label)) {
+                    return resolution;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    private final String symbol;
+
+    private final BarSeries[] series;
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private final double[] tradePrices;
+
+    private final double[] tradeVolumes;
+
+    private final long[] tradeTimestamps;
+
+    private int tradeHead = -1;
+
+    private int tradeCount;
+
+    private long day = -1;
+
+    private double dayOpen;
+
+    private double dayHigh;
+
+    private double dayLow;
+
+    private double dayVolume;
+
+    private double dayNotional;
+
+    private double lastPrice;
+
+    private long lastTimestamp;
+
+    public SymbolMarketState(String symbol, int[] capacities, int recentTrades) {
+        this.symbol = symbol;
+        this.tradePrices = new double[recentTrades];
+        this.tradeVolumes = new double[recentTrades];
+        this.tradeTimestamps = new long[recentTrades];
+        Resolution[] resolutions = Resolution.values();
+        this.series = new BarSeries[resolutions.length];
+        for (int i = 0; i < resolutions.length; i++) {
+            series[i] = new BarSeries(resolutions[i].intervalMs, capacities[i]);
+        }
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public synchronized void onTrade(double price, double volume, long timestamp) {
+        if (!rollDay(timestamp)) {
+            return;
+        }
+        if (dayOpen == 0) {
+            dayOpen = price;
+        }
+        dayHigh = dayHigh == 0 ? price : Math.max(dayHigh, price);
+        dayLow = dayLow == 0 ? price : Math.min(dayLow, price);
+        dayVolume += volume;
+        dayNotional += price * volume;
+
+        if (timestamp >= lastTimestamp) {
+            lastPrice = price;
+            lastTimestamp = timestamp;
+        }
+        for (BarSeries bars : series) {
+            bars.add(price, volume, timestamp);
+        }
+
+        if (tradePrices.length > 0) {
+            tradeHead = (tradeHead + 1) % tradePrices.length;
+            tradePrices[tradeHead] = price;
+            tradeVolumes[tradeHead] = volume;
+            tradeTimestamps[tradeHead] = timestamp;
+            tradeCount = Math.min(tradeCount + 1, tradePrices.length);
+        }
+    }
+
+    /**
+     * Seeds day open/high/low from a REST quote so stats are complete before the first trade of the session arrives.
+     */
+    public synchronized void seedDay(double open, double high, double low, long timestamp) {
+        if (!rollDay(timestamp)) {
+            return;
+        }
+        if (dayOpen == 0) {
+            dayOpen = open;
+        }
+        if (high > 0) {
+            dayHigh = dayHigh == 0 ? high : Math.max(dayHigh, high);
+        }
+        if (low > 0) {
+            dayLow = dayLow == 0 ? low : Math.min(dayLow, low);
+        }
+    }
+
+    /**
+     * Marks the state as changed; returns true only for the caller that flipped it, so it is queued once.
+     */
+    public boolean markDirty() {
+        return dirty.compareAndSet(false, true);
+    }
+
+    public void clearDirty() {
+        dirty.set(false);
+    }
+
+    public synchronized List<BarSeries.Bar> recentBars(Resolution resolution, int limit) {
+        BarSeries bars = series[resolution.ordinal()];
+        int count = Math.min(limit, bars.size());
+        List<BarSeries.Bar> recent = new ArrayList<>(count);
+        // Oldest first, as charting clients expect
+        for (int age = count - 1; age >= 0; age--) {
+            recent.add(bars.get(age));
+        }
+        return recent;
+    }
+
+    /**
+     * The most recent trades as received, oldest first.
+     */
+    public synchronized List<Trade> recentTrades() {
+        List<Trade> trades = new ArrayList<>(tradeCount);
+        for (int age = tradeCount - 1; age >= 0; age--) {
+            int slot = (tradeHead - age + tradePrices.length) % tradePrices.length;
+            trades.add(new Trade(tradePrices[slot], tradeVolumes[slot], tradeTimestamps[slot]));
+        }
+        return trades;
+    }
+
+    public synchronized Snapshot snapshot() {
+        BarSeries.Bar[] latest = new BarSeries.Bar[series.length];
+        for (int i = 0; i < series.length; i++) {
+            latest[i] = series[i].size() > 0 ? series[i].get(0) : null;
+        }
+        return new Snapshot(symbol, lastPrice, lastTimestamp, dayVolume > 0 ? dayNotional / dayVolume : lastPrice,
+                dayOpen, dayHigh, dayLow, dayVolume, latest[Resolution.SECOND_1.ordinal()],
+                latest[Resolution.MINUTE_1.ordinal()], latest[Resolution.MINUTE_5.ordinal()]);
+    }
+
+    /**
+     * Starts a new (UTC) day when the timestamp belongs to one; returns false for data from a day already closed.
+     */
+    private boolean rollDay(long timestamp) {
+        long tradeDay = Math.floorDiv(timestamp, DAY_MS);
+        if (tradeDay < day) {
+            return false;
+        }
+        if (tradeDay > day) {
+            day = tradeDay;
+            dayOpen = 0;
+            dayHigh = 0;
+            dayLow = 0;
+            dayVolume = 0;
+            dayNotional = 0;
+        }
+        return true;
+    }
+
+    public record Trade(double price, double volume, long timestamp) {
+    }
+
+    public record Snapshot(String symbol, double lastPrice, long timestamp, double vwap, double dayOpen, double dayHigh,
+                           double dayLow, double dayVolume, BarSeries.Bar bar1s, BarSeries.Bar bar1m, BarSeries.Bar bar5m) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.baodo.stocktracker.model;
+
+import com.baodo.stocktracker.dto.response.NewsItemResponse;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the cached company news for one symbol, newest first and deduplicated by article id.
+ */
+@Getter
+public class SymbolNews {
+    private static final Comparator<NewsItemResponse> NEWEST_FIRST = Comparator
+            .comparingLong(NewsItemResponse::getDatetime).reversed()
+            .thenComparing(Comparator.comparingLong(NewsItemResponse::getId).reversed());
+
+    private final List<NewsItemResponse> items;
+
+    // Datetime (epoch seconds) of the newest cached article, 0 when empty
+    private final long newestDatetime;
+
+    // When this snapshot was last refreshed from Finnhub (epoch ms)
+    private final long refreshedAt;
+
+    private SymbolNews(List<NewsItemResponse> items, long refreshedAt) {
+        this.items = items;
+        this.newestDatetime = items.isEmpty() ? 0L : items.get(0).getDatetime();
+        this.refreshedAt = refreshedAt;
+    }
+
+    public static SymbolNews empty() {
+        return new SymbolNews(List.of(), 0L);
+    }
+
+    /**
+     * Returns a new snapshot containing this snapshot's items plus {@code fetched}, deduplicated by id,
+     * without items older than {@code oldestDatetime} and capped to {@code maxItems}.
+     */
+    public SymbolNews merge(List<NewsItemResponse> fetched, long oldestDatetime, int maxItems, long refreshedAt) {
+        Map<Long, NewsItemResponse> byId = new HashMap<>(items.size() + fetched.size());
+        for (NewsItemResponse item : items) {
+            byId.put(item.getId(), item);
+        }
+        for (NewsItemResponse item : fetched) {
+            byId.put(item.getId(), item);
+        }
+
+        List<NewsItemResponse> merged = new ArrayList<>(byId.size());
+        for (NewsItemResponse item : byId.values()) {
+            if (item.getDatetime() >= oldestDatetime) {
+                merged.add(item);
+            }
+        }
+        merged.sort(NEWEST_FIRST);
+
+        return new SymbolNews(List.copyOf(merged.size() > maxItems ? merged.subList(0, maxItems) : merged), refreshedAt);
+    }
+
+    public boolean isFresh(long now, long refreshIntervalMs) {
+        return now - refreshedAt < refreshIntervalMs;
+    }
+}
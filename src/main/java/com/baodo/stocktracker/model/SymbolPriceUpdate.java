@@ -0,0 +1,7 @@
+package com.baodo.stocktracker.model;
+
+/**
+ * One symbol's entry in a combined watchlist update, with the same {@code seq} as its /topic/price{SYMBOL} update.
+ */
+public record SymbolPriceUpdate(String symbol, long seq, double price) {
+}
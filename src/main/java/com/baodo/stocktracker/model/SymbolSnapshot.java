@@ -0,0 +1,11 @@
+package com.baodo.stocktracker.model;
+
+import java.util.List;
+
+/**
+ * What a viewer needs to start rendering a symbol without a REST round trip. {@code seq} is the sequence of the last
+ * /topic/price update already reflected here; updates with a sequence at or below it can be ignored.
+ */
+public record SymbolSnapshot(String symbol, long seq, double price, long timestamp, double dayOpen, double dayHigh,
+                             double dayLow, double vwap, double dayVolume, List<SymbolMarketState.Trade> recentTrades) {
+}
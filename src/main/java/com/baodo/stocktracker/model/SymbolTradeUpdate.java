@@ -0,0 +1,29 @@
+package com.baodo.stocktracker.model;
+
+import lombok.Getter;
+
+@Getter
+public class SymbolTradeUpdate {
+    private final String symbol;
+
+    // Price of the latest trade in the frame
+    private double lastPrice;
+
+    // Total traded volume in the frame
+    private double volume;
+
+    // Timestamp of the latest trade in the frame (ms)
+    private long timestamp;
+
+    public SymbolTradeUpdate(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public void addTrade(double price, double volume, long timestamp) {
+        if (timestamp >= this.timestamp) {
+            this.lastPrice = price;
+            this.timestamp = timestamp;
+        }
+        this.volume += volume;
+    }
+}
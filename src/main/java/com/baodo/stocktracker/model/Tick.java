@@ -0,0 +1,7 @@
+package com.baodo.stocktracker.model;
+
+/**
+ * One journaled trade.
+ */
+public record Tick(String symbol, double price, double volume, long timestamp) {
+}
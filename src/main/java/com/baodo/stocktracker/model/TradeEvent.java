@@ -0,0 +1,23 @@
+package com.baodo.stocktracker.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Preallocated entry of the trade ring buffer, overwritten in place for every trade.
+ */
+@Getter
+@Setter
+public class TradeEvent {
+    private String symbol;
+
+    private double price;
+
+    private double volume;
+
+    // Trade timestamp (ms)
+    private long timestamp;
+
+    // When the frame carrying the trade was read (ms)
+    private long receivedAt;
+}
@@ -0,0 +1,9 @@
+package com.baodo.stocktracker.model;
+
+import java.util.List;
+
+/**
+ * Snapshot of a whole watchlist in request order; {@code unavailable} lists the symbols no quote could be found for.
+ */
+public record WatchlistSnapshot(List<SymbolSnapshot> symbols, List<String> unavailable) {
+}
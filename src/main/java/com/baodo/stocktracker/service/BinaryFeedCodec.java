@@ -0,0 +1,99 @@
+package com.baodo.stocktracker.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encoder of the binary feed frames, reusing one growable buffer per session. Integers are unsigned LEB128 varints,
+ * signed ones zigzag-encoded first; prices are fixed-point with 10^decimals units per 1.0, where the decimals of each
+ * symbol are sent in the SYMBOLS frame and hold until the next one.
+ * <pre>
+ * SYMBOLS: 0x01, count, then per symbol: id, seq, decimals, zigzag(price), length, ASCII symbol   (the session's full symbol set)
+ * PRICES:  0x02, count, then per symbol: id, zigzag(price - previous price sent for the id)
+ * </pre>
+ */
+public final class BinaryFeedCodec {
+    public static final byte SYMBOLS = 0x01;
+
+    public static final byte PRICES = 0x02;
+
+    public static final int MIN_DECIMALS = 4;
+
+    public static final int MAX_DECIMALS = 12;
+
+    // Kept for any price, so a pair trading at 0.00001234 does not round to 0
+    private static final int SIGNIFICANT_DIGITS = 6;
+
+    private static final double[] POWERS_OF_TEN = new double[MAX_DECIMALS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_DECIMALS; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private byte[] buffer = new byte[256];
+
+    private int length;
+
+    /**
+     * Decimals that keep {@value #SIGNIFICANT_DIGITS} significant digits of a price, and never fewer than
+     * {@value #MIN_DECIMALS}.
+     */
+    public static int decimalsFor(double price) {
+        if (!(price > 0) || Double.isInfinite(price)) {
+            return MIN_DECIMALS;
+        }
+        int magnitude = (int) Math.floor(Math.log10(price));
+        return Math.max(MIN_DECIMALS, Math.min(MAX_DECIMALS, SIGNIFICANT_DIGITS - 1 - magnitude));
+    }
+
+    public static long toFixed(double price, int decimals) {
+        return Math.round(price * POWERS_OF_TEN[decimals]);
+    }
+
+    public BinaryFeedCodec start(byte type, int count) {
+        length = 0;
+        ensure(1);
+        buffer[length++] = type;
+        return writeVarint(count);
+    }
+
+    public BinaryFeedCodec writeVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+        return this;
+    }
+
+    public BinaryFeedCodec writeSigned(long value) {
+        return writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    public BinaryFeedCodec writeSymbol(String symbol) {
+        byte[] bytes = symbol.getBytes(StandardCharsets.US_ASCII);
+        writeVarint(bytes.length);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+        return this;
+    }
+
+    /**
+     * The frame written since {@link #start}; only valid until the next frame is started.
+     */
+    public ByteBuffer frame() {
+        return ByteBuffer.wrap(buffer, 0, length);
+    }
+
+    private void ensure(int bytes) {
+        if (length + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + bytes));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.SymbolSnapshot;
+import com.baodo.stocktracker.model.WatchlistSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact binary price feed for raw WebSocket clients on /feed, next to the STOMP JSON path. A client sets its symbols
+ * like a STOMP watchlist; it then gets one SYMBOLS frame (ids, seq, price scales and base prices) and, per broadcaster
+ * flush, at most one PRICES frame of delta-encoded fixed-point prices for every changed symbol (see {@link BinaryFeedCodec}).
+ * Frames are written by a small pool of "binary-feed" threads, never by the flush thread. A client whose write stays
+ * blocked for {@code stocktracker.feed.binary.send-time-limit-ms}, or with more than {@code max-control-frames} control
+ * frames queued, is disconnected, so stalled connections cannot hold every writer thread.
+ */
+@Service
+@Slf4j
+public class BinaryFeedService {
+    private final PriceBroadcaster priceBroadcaster;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, BinaryFeedSession> sessions = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<BinaryFeedSession>> watchers = new ConcurrentHashMap<>();
+
+    private final ExecutorService drainExecutor;
+
+    private final ScheduledExecutorService watchdog;
+
+    private final int sendTimeLimitMs;
+
+    private final int bufferSizeLimit;
+
+    @Getter
+    private final int maxControlFrames;
+
+    private final Counter frames;
+
+    private final Counter bytes;
+
+    private final Counter slowConsumers;
+
+    public BinaryFeedService(PriceBroadcaster priceBroadcaster,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${stocktracker.feed.binary.threads:0}") int threads,
+                             @Value("${stocktracker.feed.binary.send-time-limit-ms:5000}") int sendTimeLimitMs,
+                             @Value("${stocktracker.feed.binary.buffer-size-limit:524288}") int bufferSizeLimit,
+                             @Value("${stocktracker.feed.binary.max-control-frames:64}") int maxControlFrames) {
+        this.priceBroadcaster = priceBroadcaster;
+        this.objectMapper = objectMapper;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.maxControlFrames = maxControlFrames;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.drainExecutor = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "binary-feed-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Its own thread: the writer threads may all be blocked when it has to act
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "binary-feed-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.frames = Counter.builder("stocktracker.feed.binary.frames").register(meterRegistry);
+        this.bytes = Counter.builder("stocktracker.feed.binary.bytes").register(meterRegistry);
+        this.slowConsumers = Counter.builder("stocktracker.feed.binary.slow.consumers").register(meterRegistry);
+        Gauge.builder("stocktracker.feed.binary.sessions", sessions, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        priceBroadcaster.addFlushListener(this::onFlush);
+        long checkIntervalMs = Math.max(10, sendTimeLimitMs / 4);
+        watchdog.scheduleWithFixedDelay(this::closeStalledSessions, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        watchdog.shutdownNow();
+        drainExecutor.shutdownNow();
+    }
+
+    public void addSession(WebSocketSession session) {
+        ConcurrentWebSocketSessionDecorator limited = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, bufferSizeLimit,
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+        sessions.put(session.getId(), new BinaryFeedSession(limited, this));
+    }
+
+    public void removeSession(String sessionId) {
+        BinaryFeedSession session = sessions.remove(sessionId);
+        if (session != null) {
+            List.copyOf(watchers.keySet()).forEach(symbol -> unwatch(symbol, session));
+        }
+    }
+
+    /**
+     * Delivers the snapshot of a new symbol set: assigns ids, queues the SYMBOLS frame and switches the session's
+     * updates to exactly these symbols. Runs in the session's request order.
+     */
+    public void deliver(String sessionId, WatchlistSnapshot snapshot) {
+        BinaryFeedSession session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+
+        Set<String> symbols = new HashSet<>();
+        for (SymbolSnapshot symbolSnapshot : snapshot.symbols()) {
+            session.idOf(symbolSnapshot.symbol());
+            symbols.add(symbolSnapshot.symbol());
+        }
+        session.sendSymbols(snapshot.symbols());
+        if (!snapshot.unavailable().isEmpty()) {
+            session.sendText(toJson(Map.of("type", "unavailable", "symbols", snapshot.unavailable())));
+        }
+
+        for (String symbol : List.copyOf(watchers.keySet())) {
+            if (!symbols.contains(symbol)) {
+                unwatch(symbol, session);
+            }
+        }
+        for (String symbol : symbols) {
+            watchers.compute(symbol, (key, sessionWatchers) -> {
+                Set<BinaryFeedSession> updated = sessionWatchers == null ? ConcurrentHashMap.newKeySet() : sessionWatchers;
+                updated.add(session);
+                return updated;
+            });
+        }
+    }
+
+    public void sendError(String sessionId, String message) {
+        BinaryFeedSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.sendText(toJson(Map.of("type", "error", "message", message)));
+        }
+    }
+
+    void onFlush(Map<String, Double> prices) {
+        Set<BinaryFeedSession> updated = new HashSet<>();
+        prices.forEach((symbol, price) -> {
+            Set<BinaryFeedSession> sessionWatchers = watchers.get(symbol);
+            if (sessionWatchers == null || sessionWatchers.isEmpty()) {
+                return;
+            }
+            for (BinaryFeedSession session : sessionWatchers) {
+                Integer id = session.existingId(symbol);
+                if (id != null) {
+                    session.offerPrice(id, price);
+                    updated.add(session);
+                }
+            }
+        });
+        updated.forEach(BinaryFeedSession::scheduleDrain);
+    }
+
+    private void unwatch(String symbol, BinaryFeedSession session) {
+        watchers.computeIfPresent(symbol, (key, sessionWatchers) -> {
+            sessionWatchers.remove(session);
+            return sessionWatchers.isEmpty() ? null : sessionWatchers;
+        });
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode binary feed control frame", e);
+        }
+    }
+
+    void closeStalledSessions() {
+        for (BinaryFeedSession session : sessions.values()) {
+            long blockedMs = session.sendBlockedMs();
+            if (blockedMs > sendTimeLimitMs) {
+                onSlowConsumer(session, "write blocked for " + blockedMs + " ms");
+            }
+        }
+    }
+
+    void onSlowConsumer(BinaryFeedSession session, String reason) {
+        if (session.abort(CloseStatus.SESSION_NOT_RELIABLE.withReason("Slow consumer"))) {
+            log.warn("Binary feed session [{}] is a slow consumer ({}), disconnected it", session.getId(), reason);
+            slowConsumers.increment();
+        }
+    }
+
+    void scheduleDrain(Runnable drain) {
+        drainExecutor.execute(drain);
+    }
+
+    void onFrameSent(int frameBytes) {
+        frames.increment();
+        bytes.increment(frameBytes);
+    }
+}
@@ -0,0 +1,246 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.SymbolSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One raw WebSocket client of the binary feed. Symbols are interned to per-session ids the first time the session
+ * watches them. Prices offered between two sends only keep the latest value per id; every PRICES frame is built at
+ * send time against the last price this session actually sent, so a slow client gets fewer frames, never wrong deltas.
+ * All writes (control frames included) go through one drain task at a time, in order, on a
+ * {@link ConcurrentWebSocketSessionDecorator} so the service can tell how long the current write has been blocked.
+ */
+@Slf4j
+final class BinaryFeedSession {
+    private final ConcurrentWebSocketSessionDecorator session;
+
+    private final BinaryFeedService service;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Latest price per id not sent yet; made fixed-point at send time, with the decimals of the id
+    private final Map<Integer, Double> pending = new ConcurrentHashMap<>();
+
+    // Control frames: text messages or SYMBOLS snapshots
+    private final Queue<Object> control = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger controlDepth = new AtomicInteger();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final AtomicBoolean closing = new AtomicBoolean();
+
+    // Set by every offer, so a price offered while a drain is running is not left for the next flush
+    private volatile boolean offered;
+
+    private final BinaryFeedCodec codec = new BinaryFeedCodec();
+
+    // Drain thread only: last price sent per id, its decimals, and whether the id is in the last SYMBOLS frame sent
+    private long[] lastSent = new long[16];
+
+    private int[] decimals = new int[16];
+
+    private boolean[] active = new boolean[16];
+
+    private int[] changedIds = new int[16];
+
+    private long[] changedPrices = new long[16];
+
+    BinaryFeedSession(ConcurrentWebSocketSessionDecorator session, BinaryFeedService service) {
+        this.session = session;
+        this.service = service;
+    }
+
+    String getId() {
+        return session.getId();
+    }
+
+    /**
+     * Id of a symbol for this session, assigned on first use.
+     */
+    synchronized int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id == null) {
+            id = ids.size();
+            ids.put(symbol, id);
+        }
+        return id;
+    }
+
+    Integer existingId(String symbol) {
+        return ids.get(symbol);
+    }
+
+    void offerPrice(int id, double price) {
+        pending.put(id, price);
+        offered = true;
+    }
+
+    void sendSymbols(List<SymbolSnapshot> snapshots) {
+        offerControl(snapshots);
+    }
+
+    void sendText(String payload) {
+        offerControl(new TextMessage(payload));
+    }
+
+    /**
+     * Milliseconds the write in progress has been blocked for, 0 when not writing.
+     */
+    long sendBlockedMs() {
+        return session.getTimeSinceSendStarted();
+    }
+
+    /**
+     * Closes the session and drops everything queued; a write blocked on the connection fails once it is closed.
+     * False if it was already closing.
+     */
+    boolean abort(CloseStatus status) {
+        if (!closing.compareAndSet(false, true)) {
+            return false;
+        }
+        control.clear();
+        pending.clear();
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.warn("Error closing binary feed session [{}]: {}", getId(), e.getMessage());
+        }
+        return true;
+    }
+
+    void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            service.scheduleDrain(this::drain);
+        }
+    }
+
+    private void offerControl(Object frame) {
+        if (closing.get()) {
+            return;
+        }
+        if (controlDepth.incrementAndGet() > service.getMaxControlFrames()) {
+            service.onSlowConsumer(this, controlDepth.get() + " control frames queued");
+            return;
+        }
+        control.offer(frame);
+        scheduleDrain();
+    }
+
+    private boolean isOpen() {
+        return !closing.get() && session.isOpen();
+    }
+
+    private void drain() {
+        offered = false;
+        try {
+            Object frame;
+            while (isOpen() && (frame = control.poll()) != null) {
+                controlDepth.decrementAndGet();
+                if (frame instanceof TextMessage text) {
+                    session.sendMessage(text);
+                } else {
+                    @SuppressWarnings("unchecked")
+                    List<SymbolSnapshot> snapshots = (List<SymbolSnapshot>) frame;
+                    sendSymbolsFrame(snapshots);
+                }
+            }
+            if (isOpen() && !pending.isEmpty()) {
+                sendPricesFrame();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (!closing.get()) {
+                log.warn("Error writing to binary feed session [{}], closing it: {}", getId(), e.getMessage());
+            }
+            abort(CloseStatus.SESSION_NOT_RELIABLE);
+        } finally {
+            draining.set(false);
+        }
+
+        if (isOpen() && (offered || !control.isEmpty())) {
+            scheduleDrain();
+        }
+    }
+
+    private void sendSymbolsFrame(List<SymbolSnapshot> snapshots) throws IOException {
+        Arrays.fill(active, false);
+        codec.start(BinaryFeedCodec.SYMBOLS, snapshots.size());
+        for (SymbolSnapshot snapshot : snapshots) {
+            int id = idOf(snapshot.symbol());
+            ensureCapacity(id);
+            decimals[id] = BinaryFeedCodec.decimalsFor(snapshot.price());
+            long price = BinaryFeedCodec.toFixed(snapshot.price(), decimals[id]);
+            lastSent[id] = price;
+            active[id] = true;
+            codec.writeVarint(id).writeVarint(snapshot.seq()).writeVarint(decimals[id]).writeSigned(price).writeSymbol(snapshot.symbol());
+        }
+        // Prices left over from symbols that were dropped would otherwise go out as deltas if they come back
+        pending.keySet().removeIf(id -> id >= active.length || !active[id]);
+        send();
+    }
+
+    private void sendPricesFrame() throws IOException {
+        int count = 0;
+        for (Map.Entry<Integer, Double> entry : pending.entrySet()) {
+            int id = entry.getKey();
+            if (id >= active.length || !active[id]) {
+                // Not in a SYMBOLS frame sent yet, it goes out after the next one
+                continue;
+            }
+            Double latest = entry.getValue();
+            // Removing only if unchanged keeps a price offered meanwhile for the next frame
+            pending.remove(id, latest);
+            long price = BinaryFeedCodec.toFixed(latest, decimals[id]);
+            if (price != lastSent[id]) {
+                if (count == changedIds.length) {
+                    changedIds = Arrays.copyOf(changedIds, count * 2);
+                    changedPrices = Arrays.copyOf(changedPrices, count * 2);
+                }
+                changedIds[count] = id;
+                changedPrices[count] = price;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+
+        codec.start(BinaryFeedCodec.PRICES, count);
+        for (int i = 0; i < count; i++) {
+            int id = changedIds[i];
+            codec.writeVarint(id).writeSigned(changedPrices[i] - lastSent[id]);
+            lastSent[id] = changedPrices[i];
+        }
+        send();
+    }
+
+    private void send() throws IOException {
+        BinaryMessage message = new BinaryMessage(codec.frame());
+        int bytes = message.getPayloadLength();
+        session.sendMessage(message);
+        service.onFrameSent(bytes);
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= lastSent.length) {
+            int size = Math.max(lastSent.length * 2, id + 1);
+            lastSent = Arrays.copyOf(lastSent, size);
+            decimals = Arrays.copyOf(decimals, size);
+            active = Arrays.copyOf(active, size);
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.baodo.stocktracker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Decides which node owns the upstream Finnhub feed.
+ * Standalone (the default), every node subscribes upstream for its own viewers. With {@code stocktracker.cluster.enabled}
+ * the nodes elect a leader through a Redis lease; only the leader connects to Finnhub, and it relays its conflated
+ * prices over Redis pub/sub so every node can fan them out to its local STOMP sessions. Each node publishes its
+ * local viewer counts to a Redis hash; the leader subscribes upstream to the union of all live nodes' symbols.
+ */
+@Service
+@Slf4j
+public class ClusterCoordinator {
+    static final String LEADER_KEY = "stocktracker:cluster:leader";
+
+    static final String NODES_KEY = "stocktracker:cluster:nodes";
+
+    static final String INTEREST_KEY_PREFIX = "stocktracker:cluster:interest:";
+
+    static final String PRICES_CHANNEL = "stocktracker:cluster:prices";
+
+    static final String CONTROL_CHANNEL = "stocktracker:cluster:control";
+
+    private static final String SYNC_MESSAGE = "sync";
+
+    private static final RedisScript<Long> RENEW_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end", Long.class);
+
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    private final FinnhubService finnhubService;
+
+    private final PriceBroadcaster priceBroadcaster;
+
+    private final QuoteCacheService quoteCacheService;
+
+    private final SubscriptionRegistry subscriptionRegistry;
+
+    private final SymbolLingerService symbolLingerService;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+
+    private final long leaseMs;
+
+    private final String nodeId;
+
+    private final String interestKey;
+
+    private final Counter leaderChanges;
+
+    private final Counter pricesRelayed;
+
+    private final Counter pricesReceived;
+
+    private Set<String> publishedInterest = new HashSet<>();
+
+    private ScheduledExecutorService executor;
+
+    private RedisMessageListenerContainer listenerContainer;
+
+    private volatile boolean leader;
+
+    public ClusterCoordinator(FinnhubService finnhubService,
+                              PriceBroadcaster priceBroadcaster,
+                              QuoteCacheService quoteCacheService,
+                              SubscriptionRegistry subscriptionRegistry,
+                              SymbolLingerService symbolLingerService,
+                              StringRedisTemplate redisTemplate,
+                              RedisConnectionFactory connectionFactory,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${stocktracker.cluster.enabled:false}") boolean enabled,
+                              @Value("${stocktracker.cluster.lease-ms:10000}") long leaseMs,
+                              @Value("${stocktracker.cluster.node-id:}") String nodeId) {
+        this.finnhubService = finnhubService;
+        this.priceBroadcaster = priceBroadcaster;
+        this.quoteCacheService = quoteCacheService;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.symbolLingerService = symbolLingerService;
+        this.redisTemplate = redisTemplate;
+        this.connectionFactory = connectionFactory;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.leaseMs = leaseMs;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.interestKey = INTEREST_KEY_PREFIX + this.nodeId;
+
+        this.leaderChanges = Counter.builder("stocktracker.cluster.leader.changes").register(meterRegistry);
+        this.pricesRelayed = Counter.builder("stocktracker.cluster.prices").tag("direction", "relayed").register(meterRegistry);
+        this.pricesReceived = Counter.builder("stocktracker.cluster.prices").tag("direction", "received").register(meterRegistry);
+        Gauge.builder("stocktracker.cluster.leader", this, coordinator -> coordinator.isLeader() ? 1 : 0).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            leader = true;
+            finnhubService.connect();
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener((message, pattern) -> onPrices(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(PRICES_CHANNEL));
+        listenerContainer.addMessageListener((message, pattern) -> onControl(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CONTROL_CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        priceBroadcaster.addFlushListener(this::relayPrices);
+
+        long tickMs = Math.max(100, leaseMs / 3);
+        executor.scheduleWithFixedDelay(this::tick, 0, tickMs, TimeUnit.MILLISECONDS);
+        log.info("Cluster mode enabled, node [{}] with a {} ms leader lease", nodeId, leaseMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+
+        executor.shutdownNow();
+        try {
+            if (leader) {
+                leader = false;
+                finnhubService.disconnect();
+                redisTemplate.execute(RELEASE_LEASE, List.of(LEADER_KEY), nodeId);
+            }
+            redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+            redisTemplate.delete(interestKey);
+            redisTemplate.convertAndSend(CONTROL_CHANNEL, SYNC_MESSAGE);
+        } catch (Exception e) {
+            log.warn("Error leaving the cluster: {}", e.getMessage());
+        }
+
+        try {
+            listenerContainer.destroy();
+        } catch (Exception e) {
+            log.warn("Error stopping the cluster listener: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Called when this node needs live prices for a symbol (its first local viewer).
+     */
+    public void acquireUpstream(String symbol) {
+        if (!enabled) {
+            finnhubService.subscribeSymbol(symbol);
+            return;
+        }
+        submit(this::publishInterest);
+    }
+
+    /**
+     * Called when this node no longer needs live prices for a symbol. In clustered mode the shared Redis quote is kept,
+     * since other nodes may still be viewing it; the leader evicts it once no node wants the symbol.
+     */
+    public void releaseUpstream(String symbol) {
+        if (!enabled) {
+            // Unsubscribe first, so trades still in the pipeline can no longer re-create the quote
+            finnhubService.unsubscribeSymbol(symbol);
+            quoteCacheService.evict(symbol);
+            return;
+        }
+        quoteCacheService.invalidateLocal(symbol);
+        submit(this::publishInterest);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(() -> runSafely(task));
+        } catch (RejectedExecutionException e) {
+            log.debug("Cluster coordinator is stopped, dropping task");
+        }
+    }
+
+    private void tick() {
+        runSafely(() -> {
+            redisTemplate.opsForZSet().add(NODES_KEY, nodeId, System.currentTimeMillis());
+            publishInterest();
+            elect();
+            if (leader) {
+                reapStaleNodes();
+                reconcile();
+            }
+        });
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("Cluster coordination error on node [{}]: {}", nodeId, e.getMessage(), e);
+        }
+    }
+
+    private void elect() {
+        if (leader) {
+            Long renewed = redisTemplate.execute(RENEW_LEASE, List.of(LEADER_KEY), nodeId, String.valueOf(leaseMs));
+            if (renewed == null || renewed == 0) {
+                log.warn("Node [{}] lost the leader lease, disconnecting from Finnhub", nodeId);
+                leader = false;
+                leaderChanges.increment();
+                finnhubService.disconnect();
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LEADER_KEY, nodeId, Duration.ofMillis(leaseMs)))) {
+            log.info("Node [{}] elected leader, connecting to Finnhub", nodeId);
+            leader = true;
+            leaderChanges.increment();
+            finnhubService.connect();
+        }
+    }
+
+    /**
+     * Writes this node's symbols (viewer count, 0 for lingering ones) to its interest hash, removing only the fields
+     * that are gone so the leader never sees a half-written set.
+     */
+    private void publishInterest() {
+        Map<String, String> interest = new HashMap<>();
+        for (String symbol : subscriptionRegistry.activeSymbols()) {
+            interest.put(symbol, String.valueOf(subscriptionRegistry.viewerCount(symbol)));
+        }
+        for (String symbol : symbolLingerService.lingeringSymbols()) {
+            interest.putIfAbsent(symbol, "0");
+        }
+
+        if (!interest.isEmpty()) {
+            redisTemplate.opsForHash().putAll(interestKey, interest);
+        }
+        Set<String> removed = new HashSet<>(publishedInterest);
+        removed.removeAll(interest.keySet());
+        if (!removed.isEmpty()) {
+            redisTemplate.opsForHash().delete(interestKey, removed.toArray());
+        }
+        redisTemplate.expire(interestKey, Duration.ofMillis(leaseMs * 3));
+
+        boolean changed = !publishedInterest.equals(interest.keySet());
+        publishedInterest = new HashSet<>(interest.keySet());
+        if (changed) {
+            if (leader) {
+                reconcile();
+            } else {
+                redisTemplate.convertAndSend(CONTROL_CHANNEL, SYNC_MESSAGE);
+            }
+        }
+    }
+
+    private void reconcile() {
+        Set<String> desired = new HashSet<>();
+        for (String node : liveNodes()) {
+            for (Object symbol : redisTemplate.opsForHash().keys(INTEREST_KEY_PREFIX + node)) {
+                desired.add(symbol.toString());
+            }
+        }
+
+        Set<String> current = new HashSet<>(finnhubService.upstreamSymbols());
+        for (String symbol : desired) {
+            if (!current.contains(symbol)) {
+                finnhubService.subscribeSymbol(symbol);
+            }
+        }
+        for (String symbol : current) {
+            if (!desired.contains(symbol)) {
+                finnhubService.unsubscribeSymbol(symbol);
+                priceBroadcaster.remove(symbol);
+                quoteCacheService.evict(symbol);
+            }
+        }
+    }
+
+    private Set<String> liveNodes() {
+        Set<String> nodes = redisTemplate.opsForZSet().rangeByScore(NODES_KEY, System.currentTimeMillis() - leaseMs * 3, Double.POSITIVE_INFINITY);
+        return nodes == null ? Set.of() : nodes;
+    }
+
+    private void reapStaleNodes() {
+        Set<String> stale = redisTemplate.opsForZSet().rangeByScore(NODES_KEY, 0, System.currentTimeMillis() - leaseMs * 3);
+        if (stale == null || stale.isEmpty()) {
+            return;
+        }
+        for (String node : stale) {
+            log.info("Node [{}] stopped heartbeating, dropping its symbols", node);
+            redisTemplate.delete(INTEREST_KEY_PREFIX + node);
+            redisTemplate.opsForZSet().remove(NODES_KEY, node);
+        }
+    }
+
+    private void onControl(String message) {
+        if (SYNC_MESSAGE.equals(message) && leader) {
+            submit(this::reconcile);
+        }
+    }
+
+    private void relayPrices(Map<String, Double> prices) {
+        if (!leader) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(PRICES_CHANNEL, objectMapper.writeValueAsString(new PriceRelay(nodeId, prices)));
+            pricesRelayed.increment(prices.size());
+        } catch (Exception e) {
+            log.error("Error relaying {} price(s) to the cluster: {}", prices.size(), e.getMessage());
+        }
+    }
+
+    private void onPrices(String message) {
+        PriceRelay relay;
+        try {
+            relay = objectMapper.readValue(message, PriceRelay.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Dropping malformed price relay message: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(relay.origin()) || relay.prices() == null) {
+            return;
+        }
+
+        // Checked again when the broadcaster creates a slot, so a symbol released meanwhile does not get one back
+        Predicate<String> live = symbol -> subscriptionRegistry.viewerCount(symbol) > 0 || symbolLingerService.isLingering(symbol);
+        for (Map.Entry<String, Double> entry : relay.prices().entrySet()) {
+            String symbol = entry.getKey();
+            if (live.test(symbol)) {
+                quoteCacheService.invalidateLocal(symbol);
+                priceBroadcaster.publish(symbol, entry.getValue(), 0, live);
+                pricesReceived.increment();
+            }
+        }
+    }
+
+    /**
+     * Prices the leader relays after a flush, tagged with the node that sent them.
+     */
+    record PriceRelay(String origin, Map<String, Double> prices) {
+    }
+}
@@ -0,0 +1,192 @@
+package com.baodo.stocktracker.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound queue of one STOMP session. Sends never block the caller: frames are queued and written by a drain task.
+ * A /topic/price* or /topic/bars* frame only keeps its latest value while queued (one slot per destination), other MESSAGE frames
+ * are dropped once the queue is full, and protocol frames (CONNECTED, RECEIPT, ERROR, heart-beats) are always kept.
+ * A downgraded session is drained at most once per downgrade interval; it conflates the same destinations, since other
+ * frames (snapshots, errors, watchlist updates carrying only the symbols that changed) cannot replace each other.
+ */
+@Slf4j
+final class ConflatingWebSocketSession extends WebSocketSessionDecorator {
+    private static final String MESSAGE_FRAME = "MESSAGE\n";
+
+    private static final String DESTINATION_HEADER = "\ndestination:";
+
+    private final StompOutboundPolicy policy;
+
+    // A queued frame, or the destination of a latest-value slot in `latest`
+    private record Queued(Object item, long enqueuedAt) {
+    }
+
+    private final Queue<Queued> queue = new ConcurrentLinkedQueue<>();
+
+    private final Map<String, WebSocketMessage<?>> latest = new ConcurrentHashMap<>();
+
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final AtomicBoolean closing = new AtomicBoolean();
+
+    final LongAdder sent = new LongAdder();
+
+    final LongAdder conflated = new LongAdder();
+
+    final LongAdder dropped = new LongAdder();
+
+    private volatile int maxDepth;
+
+    private volatile long congestedSince;
+
+    private volatile boolean downgraded;
+
+    ConflatingWebSocketSession(WebSocketSession delegate, StompOutboundPolicy policy) {
+        super(delegate);
+        this.policy = policy;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (closing.get()) {
+            return;
+        }
+
+        String destination = message instanceof TextMessage text ? messageDestination(text.getPayload()) : null;
+        if (destination != null && isLatestValueOnly(destination)) {
+            if (latest.put(destination, message) != null) {
+                conflated.increment();
+                policy.onConflated();
+                return;
+            }
+            enqueue(destination);
+        } else if (destination != null && depth.get() >= policy.getMaxQueueDepth()) {
+            dropped.increment();
+            policy.onDropped();
+            checkCongestion(depth.get());
+        } else {
+            enqueue(message);
+        }
+    }
+
+    int getDepth() {
+        return depth.get();
+    }
+
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    boolean isDowngraded() {
+        return downgraded;
+    }
+
+    void downgrade() {
+        downgraded = true;
+    }
+
+    void abort(CloseStatus status) {
+        if (!closing.compareAndSet(false, true)) {
+            return;
+        }
+        queue.clear();
+        latest.clear();
+        try {
+            getDelegate().close(status);
+        } catch (IOException e) {
+            log.warn("Error closing session [{}]: {}", getId(), e.getMessage());
+        }
+    }
+
+    private void enqueue(Object item) {
+        queue.offer(new Queued(item, System.nanoTime()));
+        int current = depth.incrementAndGet();
+        if (current > maxDepth) {
+            maxDepth = current;
+        }
+        checkCongestion(current);
+        scheduleDrain();
+    }
+
+    private void checkCongestion(int current) {
+        if (current < policy.getSlowConsumerThreshold()) {
+            congestedSince = 0;
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (congestedSince == 0) {
+            congestedSince = now;
+        } else if (now - congestedSince >= policy.getSlowConsumerGraceMs()) {
+            congestedSince = now;
+            policy.onSlowConsumer(this);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            policy.scheduleDrain(this::drain, downgraded);
+        }
+    }
+
+    private void drain() {
+        try {
+            Queued queued;
+            while (!closing.get() && (queued = queue.poll()) != null) {
+                depth.decrementAndGet();
+                WebSocketMessage<?> message = queued.item() instanceof String destination ? latest.remove(destination) : (WebSocketMessage<?>) queued.item();
+                if (message != null && isOpen()) {
+                    getDelegate().sendMessage(message);
+                    sent.increment();
+                    policy.onWritten(System.nanoTime() - queued.enqueuedAt());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Error writing to session [{}], closing it: {}", getId(), e.getMessage());
+            abort(CloseStatus.SESSION_NOT_RELIABLE);
+        } finally {
+            draining.set(false);
+        }
+
+        if (!queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private static boolean isLatestValueOnly(String destination) {
+        return destination.startsWith(PriceBroadcaster.PRICE_DESTINATION_PREFIX) || destination.startsWith(MarketStateService.BARS_DESTINATION_PREFIX);
+    }
+
+    /**
+     * The destination of a STOMP MESSAGE frame, or null for any other frame.
+     */
+    static String messageDestination(String payload) {
+        if (!payload.startsWith(MESSAGE_FRAME)) {
+            return null;
+        }
+        int headersEnd = payload.indexOf("\n\n");
+        int header = payload.indexOf(DESTINATION_HEADER);
+        if (header < 0 || (headersEnd >= 0 && header > headersEnd)) {
+            return null;
+        }
+        int start = header + DESTINATION_HEADER.length();
+        int end = payload.indexOf('\n', start);
+        return end < 0 ? null : payload.substring(start, end);
+    }
+}
@@ -0,0 +1,438 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Owns the upstream Finnhub WebSocket connections.
+ * Symbols are spread over {@code finnhub.ws.connections} sockets (least-loaded first). Each socket reconnects with
+ * jittered exponential backoff and, once back, replays its full symbol set as one burst. Subscribe/unsubscribe
+ * calls made while a socket is down only update the desired set, so nothing is lost or replayed twice.
+ * Sockets that go silent and symbols that stop trading are detected by a periodic health check.
+ * Subscribe/unsubscribe calls only record the desired state; every {@code finnhub.ws.debounce-ms} the single
+ * "finnhub-upstream" thread diffs it against what is subscribed and sends the net change, so a symbol that is
+ * dropped and picked up again inside one window never reaches Finnhub.
+ */
+@Service
+@Slf4j
+public class FinnhubConnectionManager {
+    @FunctionalInterface
+    public interface FrameHandler {
+        void handle(WebSocketMessage<?> message) throws IOException;
+    }
+
+    private static final long HEALTH_CHECK_INTERVAL_MS = 5_000;
+
+    private static final int SEND_TIME_LIMIT_MS = 5_000;
+
+    private static final int SEND_BUFFER_SIZE_LIMIT = 512 * 1024;
+
+    private final String url;
+
+    private final String apiKey;
+
+    private final int connectionCount;
+
+    private final int maxSymbolsPerConnection;
+
+    private final long minBackoffMs;
+
+    private final long maxBackoffMs;
+
+    private final long idleTimeoutMs;
+
+    private final long symbolStaleMs;
+
+    private final long debounceMs;
+
+    private final WebSocketClient client = new StandardWebSocketClient();
+
+    private final Map<String, UpstreamConnection> assignments = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> lastTradeAt = new ConcurrentHashMap<>();
+
+    private final Map<String, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+
+    // Symbols wanted upstream right now, updated synchronously unlike the batched assignments
+    private final Set<String> subscribed = ConcurrentHashMap.newKeySet();
+
+    private final UpstreamConnection[] connections;
+
+    private final Counter reconnects;
+
+    private final Counter staleSymbols;
+
+    private final Counter subscribesSent;
+
+    private final Counter unsubscribesSent;
+
+    private final Counter churnSuppressed;
+
+    private ScheduledExecutorService executor;
+
+    private volatile boolean running;
+
+    public FinnhubConnectionManager(MeterRegistry meterRegistry,
+                                    @Value("${finnhub.ws.url:wss://ws.finnhub.io}") String url,
+                                    @Value("${finnhub.api.key}") String apiKey,
+                                    @Value("${finnhub.ws.connections:1}") int connectionCount,
+                                    @Value("${finnhub.ws.max-symbols-per-connection:50}") int maxSymbolsPerConnection,
+                                    @Value("${finnhub.ws.reconnect.min-backoff-ms:500}") long minBackoffMs,
+                                    @Value("${finnhub.ws.reconnect.max-backoff-ms:30000}") long maxBackoffMs,
+                                    @Value("${finnhub.ws.idle-timeout-ms:90000}") long idleTimeoutMs,
+                                    @Value("${finnhub.ws.symbol-stale-ms:300000}") long symbolStaleMs,
+                                    @Value("${finnhub.ws.debounce-ms:50}") long debounceMs) {
+        this.url = url;
+        this.apiKey = apiKey;
+        this.connectionCount = Math.max(1, connectionCount);
+        this.maxSymbolsPerConnection = maxSymbolsPerConnection;
+        this.minBackoffMs = minBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.symbolStaleMs = symbolStaleMs;
+        this.debounceMs = Math.max(1, debounceMs);
+
+        this.connections = new UpstreamConnection[this.connectionCount];
+        for (int i = 0; i < this.connectionCount; i++) {
+            connections[i] = new UpstreamConnection(i);
+        }
+
+        this.reconnects = Counter.builder("stocktracker.finnhub.ws.reconnects").register(meterRegistry);
+        this.staleSymbols = Counter.builder("stocktracker.finnhub.ws.stale.symbols").register(meterRegistry);
+        this.subscribesSent = Counter.builder("stocktracker.finnhub.ws.commands").tag("type", "subscribe").register(meterRegistry);
+        this.unsubscribesSent = Counter.builder("stocktracker.finnhub.ws.commands").tag("type", "unsubscribe").register(meterRegistry);
+        this.churnSuppressed = Counter.builder("stocktracker.finnhub.ws.churn.suppressed").register(meterRegistry);
+        Gauge.builder("stocktracker.finnhub.ws.pending.changes", pendingChanges, Map::size).register(meterRegistry);
+        Gauge.builder("stocktracker.finnhub.ws.connected", this, manager -> manager.connectedCount()).register(meterRegistry);
+        Gauge.builder("stocktracker.finnhub.ws.symbols", assignments, Map::size).register(meterRegistry);
+    }
+
+    public synchronized void start(Supplier<FrameHandler> frameHandlerFactory) {
+        if (running) {
+            return;
+        }
+        running = true;
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "finnhub-upstream");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (UpstreamConnection connection : connections) {
+            connection.frameHandler = frameHandlerFactory.get();
+            connection.connect();
+        }
+        executor.scheduleWithFixedDelay(this::applyPendingChanges, debounceMs, debounceMs, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_INTERVAL_MS, HEALTH_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (UpstreamConnection connection : connections) {
+            connection.close(CloseStatus.GOING_AWAY);
+        }
+    }
+
+    public void subscribe(String symbol) {
+        subscribed.add(symbol);
+        pendingChanges.merge(symbol, new PendingChange(true, 1), PendingChange::then);
+    }
+
+    public void unsubscribe(String symbol) {
+        subscribed.remove(symbol);
+        pendingChanges.merge(symbol, new PendingChange(false, 1), PendingChange::then);
+    }
+
+    /**
+     * Whether the symbol is wanted upstream. False as soon as it is unsubscribed, while trades already read or
+     * still in flight from Finnhub keep arriving for a moment.
+     */
+    public boolean isSubscribed(String symbol) {
+        return subscribed.contains(symbol);
+    }
+
+    public void recordTrade(String symbol, long receivedAt) {
+        AtomicLong last = lastTradeAt.get(symbol);
+        if (last != null) {
+            last.lazySet(receivedAt);
+        }
+    }
+
+    public Set<String> activeSymbols() {
+        return Collections.unmodifiableSet(assignments.keySet());
+    }
+
+    public boolean isConnected() {
+        return connectedCount() == connectionCount;
+    }
+
+    private int connectedCount() {
+        int connected = 0;
+        for (UpstreamConnection connection : connections) {
+            if (connection.isOpen()) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    private UpstreamConnection leastLoadedConnection() {
+        UpstreamConnection leastLoaded = connections[0];
+        for (UpstreamConnection connection : connections) {
+            if (connection.symbols.size() < leastLoaded.symbols.size()) {
+                leastLoaded = connection;
+            }
+        }
+        return leastLoaded;
+    }
+
+    /**
+     * Runs on the upstream thread only: turns the requests collected during the last window into at most one
+     * command per symbol.
+     */
+    private void applyPendingChanges() {
+        for (String symbol : pendingChanges.keySet()) {
+            PendingChange change = pendingChanges.remove(symbol);
+            if (change == null) {
+                continue;
+            }
+
+            boolean subscribed = assignments.containsKey(symbol);
+            boolean sent = change.subscribe() != subscribed;
+            if (sent) {
+                if (change.subscribe()) {
+                    sendSubscribe(symbol);
+                } else {
+                    sendUnsubscribe(symbol);
+                }
+            }
+            int suppressed = change.requests() - (sent ? 1 : 0);
+            if (suppressed > 0) {
+                churnSuppressed.increment(suppressed);
+            }
+        }
+    }
+
+    private void sendSubscribe(String symbol) {
+        UpstreamConnection connection = leastLoadedConnection();
+        connection.symbols.add(symbol);
+        assignments.put(symbol, connection);
+        lastTradeAt.put(symbol, new AtomicLong(System.currentTimeMillis()));
+        if (connection.symbols.size() > maxSymbolsPerConnection) {
+            log.warn("Upstream connection #{} now carries {} symbols, above the per-connection limit of {}",
+                    connection.index, connection.symbols.size(), maxSymbolsPerConnection);
+        }
+
+        if (connection.send(subscribeMessage(symbol))) {
+            subscribesSent.increment();
+        } else {
+            log.info("Upstream connection #{} is down, symbol [{}] will be subscribed on reconnect", connection.index, symbol);
+        }
+    }
+
+    private void sendUnsubscribe(String symbol) {
+        UpstreamConnection connection = assignments.remove(symbol);
+        connection.symbols.remove(symbol);
+        lastTradeAt.remove(symbol);
+
+        if (connection.send(unsubscribeMessage(symbol))) {
+            unsubscribesSent.increment();
+        } else {
+            log.info("Upstream connection #{} is down, symbol [{}] will not be replayed", connection.index, symbol);
+        }
+    }
+
+    private void checkHealth() {
+        long now = System.currentTimeMillis();
+
+        for (UpstreamConnection connection : connections) {
+            if (connection.isOpen() && now - connection.lastMessageAt > idleTimeoutMs) {
+                log.warn("Upstream connection #{} has been silent for {} ms, reconnecting", connection.index, now - connection.lastMessageAt);
+                connection.close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+
+        for (Map.Entry<String, AtomicLong> entry : lastTradeAt.entrySet()) {
+            if (now - entry.getValue().get() > symbolStaleMs) {
+                UpstreamConnection connection = assignments.get(entry.getKey());
+                if (connection != null && connection.isOpen()) {
+                    log.info("No trades for symbol [{}] in {} ms, re-sending subscription", entry.getKey(), now - entry.getValue().get());
+                    staleSymbols.increment();
+                    entry.getValue().set(now);
+                    connection.send(subscribeMessage(entry.getKey()));
+                }
+            }
+        }
+    }
+
+    static String subscribeMessage(String symbol) {
+        return "{\"type\":\"subscribe\",\"symbol\":\"" + symbol + "\"}";
+    }
+
+    static String unsubscribeMessage(String symbol) {
+        return "{\"type\":\"unsubscribe\",\"symbol\":\"" + symbol + "\"}";
+    }
+
+    private record PendingChange(boolean subscribe, int requests) {
+        private PendingChange then(PendingChange next) {
+            return new PendingChange(next.subscribe, requests + next.requests);
+        }
+    }
+
+    private final class UpstreamConnection implements WebSocketHandler {
+        private final int index;
+
+        private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+
+        private final AtomicBoolean reconnectScheduled = new AtomicBoolean();
+
+        private FrameHandler frameHandler;
+
+        private volatile WebSocketSession session;
+
+        private volatile long lastMessageAt;
+
+        private int attempts;
+
+        private UpstreamConnection(int index) {
+            this.index = index;
+        }
+
+        private void connect() {
+            if (!running) {
+                return;
+            }
+            client.execute(this, null, URI.create(url + "?token=" + apiKey))
+                    .whenComplete((established, ex) -> {
+                        if (ex != null) {
+                            log.warn("Failed to connect upstream connection #{} to Finnhub: {}", index, ex.getMessage());
+                            scheduleReconnect();
+                        }
+                    });
+        }
+
+        private void scheduleReconnect() {
+            if (!running || !reconnectScheduled.compareAndSet(false, true)) {
+                return;
+            }
+
+            long ceiling = Math.min(maxBackoffMs, minBackoffMs << Math.min(attempts, 20));
+            long delay = minBackoffMs + ThreadLocalRandom.current().nextLong(Math.max(1, ceiling - minBackoffMs + 1));
+            attempts++;
+            log.info("Reconnecting upstream connection #{} in {} ms (attempt {})", index, delay, attempts);
+
+            executor.schedule(() -> {
+                reconnectScheduled.set(false);
+                reconnects.increment();
+                connect();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private boolean isOpen() {
+            WebSocketSession current = session;
+            return current != null && current.isOpen();
+        }
+
+        private boolean send(String payload) {
+            WebSocketSession current = session;
+            if (current == null || !current.isOpen()) {
+                return false;
+            }
+            try {
+                current.sendMessage(new TextMessage(payload));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.error("Error sending to upstream connection #{}: {}", index, e.getMessage(), e);
+                return false;
+            }
+        }
+
+        private void close(CloseStatus status) {
+            WebSocketSession current = session;
+            if (current != null) {
+                try {
+                    current.close(status);
+                } catch (IOException e) {
+                    log.warn("Error closing upstream connection #{}: {}", index, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession session) {
+            this.session = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_SIZE_LIMIT);
+            this.lastMessageAt = System.currentTimeMillis();
+            this.attempts = 0;
+            if (running) {
+                executor.execute(this::replay);
+            }
+        }
+
+        private void replay() {
+            // Replay the whole symbol set of this connection as one burst
+            int replayed = 0;
+            for (String symbol : symbols) {
+                if (send(subscribeMessage(symbol))) {
+                    replayed++;
+                }
+            }
+            subscribesSent.increment(replayed);
+            log.info("Connected upstream connection #{} to Finnhub WebSocket, replayed {} subscription(s)", index, replayed);
+        }
+
+        @Override
+        public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws IOException {
+            lastMessageAt = System.currentTimeMillis();
+            frameHandler.handle(message);
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) {
+            log.error("WebSocket transport error on upstream connection #{}: {}", index, exception.getMessage(), exception);
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) {
+            this.session = null;
+            log.warn("Finnhub WebSocket upstream connection #{} closed: {}", index, closeStatus);
+            scheduleReconnect();
+        }
+
+        @Override
+        public boolean supportsPartialMessages() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Shared budget for outbound Finnhub REST calls.
+ * Requests wait in a bounded queue per priority lane and are released by a token bucket, interactive lane first.
+ * Requests that cannot be queued, or that wait past their lane's deadline, are shed with 503 instead of
+ * turning into Finnhub 429s.
+ */
+@Service
+@Slf4j
+public class FinnhubRequestScheduler {
+    public enum Priority {
+        INTERACTIVE, BACKGROUND
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final double permitsPerSecond;
+
+    private final double burst;
+
+    private final int queueCapacity;
+
+    private final Map<Priority, Duration> maxWait = new EnumMap<>(Priority.class);
+
+    private final Map<Priority, Deque<PendingRequest>> lanes = new EnumMap<>(Priority.class);
+
+    private final Map<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+
+    private final Map<Priority, Timer> queueWaitTimers = new EnumMap<>(Priority.class);
+
+    private final Map<Priority, Counter> queueFullCounters = new EnumMap<>(Priority.class);
+
+    private final Map<Priority, Counter> deadlineCounters = new EnumMap<>(Priority.class);
+
+    private final ScheduledExecutorService drainExecutor;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    private boolean drainScheduled;
+
+    public FinnhubRequestScheduler(MeterRegistry meterRegistry,
+                                   @Value("${finnhub.rate-limit.permits-per-second:1}") double permitsPerSecond,
+                                   @Value("${finnhub.rate-limit.burst:10}") double burst,
+                                   @Value("${finnhub.scheduler.queue-capacity:100}") int queueCapacity,
+                                   @Value("${finnhub.scheduler.interactive-max-wait-ms:2000}") long interactiveMaxWaitMs,
+                                   @Value("${finnhub.scheduler.background-max-wait-ms:15000}") long backgroundMaxWaitMs) {
+        this.meterRegistry = meterRegistry;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.queueCapacity = queueCapacity;
+        this.maxWait.put(Priority.INTERACTIVE, Duration.ofMillis(interactiveMaxWaitMs));
+        this.maxWait.put(Priority.BACKGROUND, Duration.ofMillis(backgroundMaxWaitMs));
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+
+        for (Priority priority : Priority.values()) {
+            Deque<PendingRequest> lane = new ArrayDeque<>();
+            lanes.put(priority, lane);
+            Gauge.builder("stocktracker.finnhub.queue.size", lane, this::laneSize)
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry);
+            queueWaitTimers.put(priority, Timer.builder("stocktracker.finnhub.queue.wait")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+            queueFullCounters.put(priority, shedCounter(meterRegistry, priority, "queue-full"));
+            deadlineCounters.put(priority, shedCounter(meterRegistry, priority, "deadline"));
+        }
+
+        this.drainExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "finnhub-request-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        drainExecutor.shutdownNow();
+    }
+
+    public <T> Mono<T> schedule(Priority priority, String endpoint, Supplier<Mono<T>> request) {
+        return Mono.defer(() -> acquire(priority)
+                .then(Mono.defer(() -> {
+                    Timer.Sample sample = Timer.start(meterRegistry);
+                    return request.get().doFinally(signal -> sample.stop(latencyTimer(endpoint)));
+                })));
+    }
+
+    public <T> Flux<T> scheduleMany(Priority priority, String endpoint, Supplier<Flux<T>> request) {
+        return Flux.defer(() -> acquire(priority)
+                .thenMany(Flux.defer(() -> {
+                    Timer.Sample sample = Timer.start(meterRegistry);
+                    return request.get().doFinally(signal -> sample.stop(latencyTimer(endpoint)));
+                })));
+    }
+
+    private Mono<Void> acquire(Priority priority) {
+        PendingRequest pending = new PendingRequest(priority, System.nanoTime() + maxWait.get(priority).toNanos());
+
+        synchronized (this) {
+            Deque<PendingRequest> lane = lanes.get(priority);
+            if (lane.size() >= queueCapacity) {
+                queueFullCounters.get(priority).increment();
+                log.warn("Finnhub {} request queue is full ({}), shedding request", priority, queueCapacity);
+                return Mono.error(shed("Finnhub request queue is full, please retry later"));
+            }
+            lane.addLast(pending);
+        }
+        drain();
+
+        return pending.permit.asMono()
+                .doOnCancel(() -> pending.cancelled = true)
+                .doOnSuccess(ignored -> queueWaitTimers.get(priority)
+                        .record(System.nanoTime() - pending.enqueuedNanos, TimeUnit.NANOSECONDS));
+    }
+
+    private void drain() {
+        List<PendingRequest> released = new ArrayList<>();
+        List<PendingRequest> expired = new ArrayList<>();
+        long nextAttemptNanos = -1;
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+
+            for (Priority priority : Priority.values()) {
+                Deque<PendingRequest> lane = lanes.get(priority);
+                PendingRequest pending;
+                while ((pending = lane.peekFirst()) != null) {
+                    if (pending.cancelled) {
+                        lane.pollFirst();
+                    } else if (now - pending.deadlineNanos > 0) {
+                        expired.add(lane.pollFirst());
+                    } else if (tokens >= 1.0) {
+                        tokens -= 1.0;
+                        released.add(lane.pollFirst());
+                    } else {
+                        break;
+                    }
+                }
+            }
+
+            if (!drainScheduled && hasPending()) {
+                drainScheduled = true;
+                nextAttemptNanos = (long) ((1.0 - tokens) / permitsPerSecond * 1_000_000_000L);
+            }
+        }
+
+        // Complete permits outside the lock: subscribers start their HTTP call on this thread
+        for (PendingRequest pending : expired) {
+            deadlineCounters.get(pending.priority).increment();
+            pending.permit.tryEmitError(shed("Finnhub request budget exceeded, please retry later"));
+        }
+        for (PendingRequest pending : released) {
+            pending.permit.tryEmitEmpty();
+        }
+
+        if (nextAttemptNanos >= 0) {
+            drainExecutor.schedule(() -> {
+                synchronized (this) {
+                    drainScheduled = false;
+                }
+                drain();
+            }, Math.max(nextAttemptNanos, 1_000_000L), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        tokens = Math.min(burst, tokens + elapsedSeconds * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+
+    private boolean hasPending() {
+        for (Deque<PendingRequest> lane : lanes.values()) {
+            if (!lane.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double laneSize(Deque<PendingRequest> lane) {
+        synchronized (this) {
+            return lane.size();
+        }
+    }
+
+    private Timer latencyTimer(String endpoint) {
+        return latencyTimers.computeIfAbsent(endpoint, key -> Timer.builder("stocktracker.finnhub.requests")
+                .tag("endpoint", key)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static Counter shedCounter(MeterRegistry meterRegistry, Priority priority, String reason) {
+        return Counter.builder("stocktracker.finnhub.requests.shed")
+                .tag("priority", priority.name().toLowerCase())
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static ResponseStatusException shed(String reason) {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, reason);
+    }
+
+    private static final class PendingRequest {
+        private final Sinks.Empty<Void> permit = Sinks.empty();
+
+        private final long enqueuedNanos = System.nanoTime();
+
+        private final Priority priority;
+
+        private final long deadlineNanos;
+
+        private volatile boolean cancelled;
+
+        private PendingRequest(Priority priority, long deadlineNanos) {
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
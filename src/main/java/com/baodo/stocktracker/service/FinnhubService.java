@@ -1,24 +1,23 @@
 package com.baodo.stocktracker.service;
 
 import com.baodo.stocktracker.dto.response.SymbolQuoteResponse;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.baodo.stocktracker.model.MutableTrade;
 import io.micrometer.tracing.Tracer;
-import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
-import org.springframework.web.socket.*;
-import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import reactor.core.publisher.Mono;
 import io.micrometer.tracing.Span;
 
 import java.io.IOException;
-import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -28,65 +27,38 @@ public class FinnhubService {
 
     private final WebClient finnhubWebClient;
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final FinnhubConnectionManager connectionManager;
 
-    private final RedisService redisService;
+    private final MarketStateService marketStateService;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TradePipeline tradePipeline;
 
-    private WebSocketSession session;
+    private final FinnhubRequestScheduler requestScheduler;
 
     private final Tracer tracer;
 
-    public FinnhubService(WebClient finnhubWebClient, SimpMessagingTemplate messagingTemplate, RedisService redisService, Tracer tracer) {
+    public FinnhubService(WebClient finnhubWebClient, FinnhubRequestScheduler requestScheduler, FinnhubConnectionManager connectionManager, MarketStateService marketStateService, TradePipeline tradePipeline, Tracer tracer) {
         this.finnhubWebClient = finnhubWebClient;
-        this.messagingTemplate = messagingTemplate;
-        this.redisService = redisService;
+        this.requestScheduler = requestScheduler;
+        this.connectionManager = connectionManager;
+        this.marketStateService = marketStateService;
+        this.tradePipeline = tradePipeline;
         this.tracer = tracer;
     }
 
-    @PostConstruct
+    /**
+     * Opens the upstream trade feed. In clustered mode only the elected leader calls this.
+     */
     public void connect() {
-        StandardWebSocketClient client = new StandardWebSocketClient();
-
-        client.execute(
-                new WebSocketHandler() {
-                    @Override
-                    public void afterConnectionEstablished(WebSocketSession session) {
-                        FinnhubService.this.session = session;
-                        log.info("Connected to Finnhub WebSocket!");
-                    }
-
-                    @Override
-                    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws IOException {
-                        JsonNode json = objectMapper.readTree(message.getPayload().toString());
-                        if ("trade".equals(json.get("type").asText())) {
-                            JsonNode tradeData = json.get("data").get(0);
-
-                            String symbol = tradeData.get("s").asText();
-                            double price = tradeData.get("p").asDouble();
-
-                            redisService.save(symbol, price);
-                            messagingTemplate.convertAndSend("/topic/price" + symbol, price);
-                        }
-                    }
-
-                    @Override
-                    public void handleTransportError(WebSocketSession session, Throwable exception) {
-                        log.error("WebSocket transport error: {}", exception.getMessage(), exception);
-                    }
-
-                    @Override
-                    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) {
-                        log.warn("Finnhub WebSocket connection closed: {}", closeStatus);
-                    }
-
-                    @Override
-                    public boolean supportsPartialMessages() {
-                        return false;
-                    }
-                }, null, URI.create("wss://ws.finnhub.io?token=" + apiKey)
-        );
+        connectionManager.start(TradeFrameHandler::new);
+    }
+
+    public void disconnect() {
+        connectionManager.stop();
+    }
+
+    public Set<String> upstreamSymbols() {
+        return connectionManager.activeSymbols();
     }
 
     public Mono<SymbolQuoteResponse> getQuote(String symbol) {
@@ -95,44 +67,78 @@ public class FinnhubService {
             try (Tracer.SpanInScope scope = tracer.withSpan(newSpan.start())) {
                 log.info("Fetching quote for symbol [{}] from Finnhub", symbol);
 
-                return finnhubWebClient.get()
-                        .uri(uriBuilder -> uriBuilder
-                                .path("/quote")
-                                .queryParam("symbol", symbol)
-                                .queryParam("token", apiKey)
-                                .build())
-                        .retrieve()
-                        .bodyToMono(SymbolQuoteResponse.class)
-                        .doOnTerminate(newSpan::end)
-                        .onErrorResume(ex -> {
-                            log.info("Failed to fetch stock data from Finnhub for symbol [{}]: {}", symbol, ex.getMessage());
-                            return Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Failed to fetch stock data from Finnhub for symbol [" + symbol + "]", ex));
-                        });
+                return requestScheduler.schedule(FinnhubRequestScheduler.Priority.INTERACTIVE, "/quote", () -> finnhubWebClient.get()
+                                .uri(uriBuilder -> uriBuilder
+                                        .path("/quote")
+                                        .queryParam("symbol", symbol)
+                                        .queryParam("token", apiKey)
+                                        .build())
+                                .retrieve()
+                                .bodyToMono(SymbolQuoteResponse.class)
+                                .onErrorResume(ex -> {
+                                    log.info("Failed to fetch stock data from Finnhub for symbol [{}]: {}", symbol, ex.getMessage());
+                                    return Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Failed to fetch stock data from Finnhub for symbol [" + symbol + "]", ex));
+                                }))
+                        .doOnTerminate(newSpan::end);
             }
         });
     }
 
-    public void subscribeSymbol(String symbol) throws IOException {
+    public void subscribeSymbol(String symbol) {
         Span newSpan = tracer.nextSpan().name("FinnhubService - subscribeSymbol: Subscribe to Symbol Finnhub WS");
         try (Tracer.SpanInScope scope = tracer.withSpan(newSpan.start())) {
-            String subMessage = String.format("{\"type\":\"subscribe\",\"symbol\":\"%s\"}", symbol);
             log.info("Subscribing to symbol [{}] via WebSocket", symbol);
-            session.sendMessage(new TextMessage(subMessage));
+            connectionManager.subscribe(symbol);
         } finally {
             newSpan.end();
         }
     }
 
 
-    public void unsubscribeSymbol(String symbol) throws IOException {
+    public void unsubscribeSymbol(String symbol) {
         Span newSpan = tracer.nextSpan().name("FinnhubService - unsubscribeSymbol: Unsubscribe from Symbol Finnhub WS");
         try (Tracer.SpanInScope scope = tracer.withSpan(newSpan.start())) {
-            String unsubMessage = String.format("{\"type\":\"unsubscribe\",\"symbol\":\"%s\"}", symbol);
             log.info("Unsubscribing from symbol [{}] via WebSocket", symbol);
-            session.sendMessage(new TextMessage(unsubMessage));
+            connectionManager.unsubscribe(symbol);
+            marketStateService.remove(symbol);
         } finally {
             newSpan.end();
         }
     }
 
+    /**
+     * Decodes the frames of one upstream connection and hands every trade to the {@link TradePipeline};
+     * each connection gets its own instance because the decoder is not thread-safe.
+     */
+    private class TradeFrameHandler implements FinnhubConnectionManager.FrameHandler {
+        private final FinnhubTradeDecoder tradeDecoder = new FinnhubTradeDecoder();
+
+        @Override
+        public void handle(WebSocketMessage<?> message) throws IOException {
+            if (decodeFrame(message) == FinnhubTradeDecoder.FrameType.TRADE) {
+                long receivedAt = System.currentTimeMillis();
+                for (int i = 0; i < tradeDecoder.getTradeCount(); i++) {
+                    MutableTrade trade = tradeDecoder.getTrade(i);
+                    tradePipeline.publish(trade.getSymbol(), trade.getPrice(), trade.getVolume(), trade.getTimestamp(), receivedAt);
+                }
+            }
+        }
+
+        private FinnhubTradeDecoder.FrameType decodeFrame(WebSocketMessage<?> message) throws IOException {
+            if (message instanceof TextMessage textMessage) {
+                return tradeDecoder.decode(textMessage.getPayload());
+            }
+            if (message instanceof BinaryMessage binaryMessage) {
+                ByteBuffer payload = binaryMessage.getPayload();
+                if (payload.hasArray()) {
+                    return tradeDecoder.decode(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+                }
+                byte[] bytes = new byte[payload.remaining()];
+                payload.duplicate().get(bytes);
+                return tradeDecoder.decode(bytes, 0, bytes.length);
+            }
+            return FinnhubTradeDecoder.FrameType.OTHER;
+        }
+    }
+
 }
@@ -0,0 +1,204 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.MutableTrade;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming decoder for Finnhub WebSocket frames.
+ * Reads "type" and the "data" trades straight into pooled {@link MutableTrade} records, without building
+ * a JsonNode tree and without allocating a new String for symbols it has already seen.
+ * Not thread-safe: one instance is owned by the Finnhub reader thread.
+ */
+public class FinnhubTradeDecoder {
+    public enum FrameType {
+        TRADE, PING, OTHER
+    }
+
+    private static final String TYPE_TRADE = "trade";
+
+    private static final String TYPE_PING = "ping";
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final SymbolTable symbolTable = new SymbolTable();
+
+    private final List<MutableTrade> tradePool = new ArrayList<>();
+
+    private int tradeCount;
+
+    private FrameType frameType;
+
+    public FrameType decode(String payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            return decode(parser);
+        }
+    }
+
+    public FrameType decode(byte[] payload, int offset, int length) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload, offset, length)) {
+            return decode(parser);
+        }
+    }
+
+    public int getTradeCount() {
+        return frameType == FrameType.TRADE ? tradeCount : 0;
+    }
+
+    public MutableTrade getTrade(int index) {
+        return tradePool.get(index);
+    }
+
+    private FrameType decode(JsonParser parser) throws IOException {
+        tradeCount = 0;
+        frameType = FrameType.OTHER;
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return frameType;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if ("type".equals(field) && value == JsonToken.VALUE_STRING) {
+                String type = symbolTable.intern(parser);
+                if (TYPE_TRADE.equals(type)) {
+                    frameType = FrameType.TRADE;
+                } else if (TYPE_PING.equals(type)) {
+                    frameType = FrameType.PING;
+                }
+            } else if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                readTrades(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return frameType;
+    }
+
+    private void readTrades(JsonParser parser) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            MutableTrade trade = nextTrade();
+            boolean hasPrice = false;
+            boolean hasTimestamp = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "s" -> trade.setSymbol(value == JsonToken.VALUE_STRING ? symbolTable.intern(parser) : null);
+                    case "p" -> {
+                        hasPrice = value.isNumeric();
+                        trade.setPrice(hasPrice ? parser.getDoubleValue() : 0.0);
+                    }
+                    case "v" -> trade.setVolume(value.isNumeric() ? parser.getDoubleValue() : 0.0);
+                    case "t" -> {
+                        hasTimestamp = value.isNumeric();
+                        trade.setTimestamp(hasTimestamp ? parser.getLongValue() : 0L);
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+
+            // A trade without symbol, price or timestamp would publish a 0 price and poison bars and the journal
+            if (trade.getSymbol() == null || !hasPrice || trade.getPrice() <= 0 || !hasTimestamp || trade.getTimestamp() <= 0) {
+                tradeCount--;
+            }
+        }
+    }
+
+    private MutableTrade nextTrade() {
+        if (tradeCount == tradePool.size()) {
+            tradePool.add(new MutableTrade());
+        }
+        MutableTrade trade = tradePool.get(tradeCount++);
+        trade.reset();
+        return trade;
+    }
+
+    /**
+     * Open-addressing table that maps the parser's current text buffer to a canonical String,
+     * so a symbol is only materialized the first time it is seen.
+     */
+    private static final class SymbolTable {
+        private static final int MAX_SIZE = 1 << 14;
+
+        private String[] entries = new String[256];
+
+        private int size;
+
+        String intern(JsonParser parser) throws IOException {
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + chars[offset + i];
+            }
+
+            int mask = entries.length - 1;
+            int index = spread(hash) & mask;
+            String entry;
+            while ((entry = entries[index]) != null) {
+                if (entry.hashCode() == hash && matches(entry, chars, offset, length)) {
+                    return entry;
+                }
+                index = (index + 1) & mask;
+            }
+
+            String symbol = new String(chars, offset, length);
+            if (size >= MAX_SIZE) {
+                // Unbounded symbol churn: stop caching rather than grow forever
+                return symbol;
+            }
+            entries[index] = symbol;
+            if (++size * 2 > entries.length) {
+                rehash();
+            }
+            return symbol;
+        }
+
+        private static boolean matches(String entry, char[] chars, int offset, int length) {
+            if (entry.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (entry.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rehash() {
+            String[] old = entries;
+            entries = new String[old.length * 2];
+            int mask = entries.length - 1;
+            for (String entry : old) {
+                if (entry != null) {
+                    int index = spread(entry.hashCode()) & mask;
+                    while (entries[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    entries[index] = entry;
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
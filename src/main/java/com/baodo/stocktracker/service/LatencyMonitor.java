@@ -0,0 +1,164 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * End-to-end latency of a price, per stage of its way from the exchange to a browser, plus per-symbol trade and
+ * update rates. Stages are {@code stocktracker.latency} timers whose percentiles Micrometer computes from HdrHistogram
+ * recorders over a rolling window; {@link #report()} backs the /actuator/latency endpoint.
+ */
+@Service
+public class LatencyMonitor {
+    public enum Stage {
+        // Finnhub trade timestamp to the frame being read (includes clock skew with the exchange)
+        EXCHANGE_RECEIVE("exchange-receive"),
+        // Frame read to the trade being written to the quote cache
+        RECEIVE_CACHE("receive-cache"),
+        // Frame read to the conflated price being sent to the broker
+        RECEIVE_BROKER("receive-broker"),
+        // Frame handed to a session by the broker to it being written to the socket
+        BROKER_SOCKET("broker-socket");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    public record StageLatency(long count, double meanMs, double maxMs, Map<String, Double> percentilesMs) {
+    }
+
+    public record SymbolRate(double tradesPerSecond, double updatesPerSecond) {
+    }
+
+    public record Report(Map<String, StageLatency> stages, Map<String, SymbolRate> symbols) {
+    }
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final long RATE_WINDOW_MS = 5_000;
+
+    private final Timer[] timers = new Timer[Stage.values().length];
+
+    private final Map<String, SymbolCounter> symbols = new ConcurrentHashMap<>();
+
+    public LatencyMonitor(MeterRegistry meterRegistry) {
+        for (Stage stage : Stage.values()) {
+            timers[stage.ordinal()] = Timer.builder("stocktracker.latency")
+                    .tag("stage", stage.label)
+                    .publishPercentiles(PERCENTILES)
+                    .register(meterRegistry);
+        }
+    }
+
+    public void record(Stage stage, long millis) {
+        // Clocks of the exchange and this host are not in sync, a trade can seem to arrive before it happened
+        timers[stage.ordinal()].record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordNanos(Stage stage, long nanos) {
+        timers[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a trade, creating the symbol's counter only while {@code live} holds (checked atomically with {@link #remove}).
+     */
+    public void recordTrade(String symbol, Predicate<String> live) {
+        record(symbol, true, live);
+    }
+
+    /**
+     * Counts an update sent to the browsers, with the same {@code live} guard as {@link #recordTrade}.
+     */
+    public void recordUpdate(String symbol, Predicate<String> live) {
+        record(symbol, false, live);
+    }
+
+    public void remove(String symbol) {
+        symbols.remove(symbol);
+    }
+
+    public Report report() {
+        Map<String, StageLatency> stages = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            HistogramSnapshot snapshot = timers[stage.ordinal()].takeSnapshot();
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                percentiles.put("p" + formatPercentile(value.percentile()), value.value(TimeUnit.MILLISECONDS));
+            }
+            stages.put(stage.label, new StageLatency(snapshot.count(), snapshot.mean(TimeUnit.MILLISECONDS),
+                    snapshot.max(TimeUnit.MILLISECONDS), percentiles));
+        }
+
+        long now = System.currentTimeMillis();
+        Map<String, SymbolRate> rates = new TreeMap<>();
+        symbols.forEach((symbol, counter) -> rates.put(symbol, counter.rate(now)));
+        return new Report(stages, rates);
+    }
+
+    private void record(String symbol, boolean trade, Predicate<String> live) {
+        SymbolCounter counter = symbols.get(symbol);
+        if (counter == null) {
+            counter = symbols.computeIfAbsent(symbol, key -> live.test(key) ? new SymbolCounter() : null);
+            if (counter == null) {
+                return;
+            }
+        }
+        counter.record(trade, System.currentTimeMillis());
+    }
+
+    private static String formatPercentile(double percentile) {
+        double value = percentile * 100;
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /**
+     * Counts over a fixed window; the rate of the last complete window is published when the next one starts.
+     */
+    private static final class SymbolCounter {
+        private final LongAdder trades = new LongAdder();
+
+        private final LongAdder updates = new LongAdder();
+
+        private volatile long windowStart = System.currentTimeMillis();
+
+        private volatile SymbolRate rate = new SymbolRate(0, 0);
+
+        private void record(boolean trade, long now) {
+            (trade ? trades : updates).increment();
+            if (now - windowStart >= RATE_WINDOW_MS) {
+                roll(now);
+            }
+        }
+
+        private SymbolRate rate(long now) {
+            // A symbol that went quiet has no writer to close its window
+            if (now - windowStart >= 2 * RATE_WINDOW_MS) {
+                roll(now);
+            }
+            return rate;
+        }
+
+        private synchronized void roll(long now) {
+            long elapsed = now - windowStart;
+            if (elapsed < RATE_WINDOW_MS) {
+                return;
+            }
+            rate = new SymbolRate(trades.sumThenReset() * 1000.0 / elapsed, updates.sumThenReset() * 1000.0 / elapsed);
+            windowStart = now;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.BarSeries;
+import com.baodo.stocktracker.model.SymbolMarketState;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Per-symbol market state fed by every upstream trade (bars, VWAP, day stats).
+ * Changed symbols are published to /topic/bars{SYMBOL} at most once per {@code stocktracker.bars.publish-interval-ms},
+ * on the same dirty-queue pattern as {@link PriceBroadcaster}.
+ */
+@Service
+@Slf4j
+public class MarketStateService {
+    public static final String BARS_DESTINATION_PREFIX = "/topic/bars";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Map<String, SymbolMarketState> states = new ConcurrentHashMap<>();
+
+    private final Queue<SymbolMarketState> dirtyStates = new ConcurrentLinkedQueue<>();
+
+    @Value("${stocktracker.bars.publish-interval-ms:1000}")
+    private long publishIntervalMs;
+
+    @Value("${stocktracker.bars.capacity.1s:300}")
+    private int secondBars;
+
+    @Value("${stocktracker.bars.capacity.1m:240}")
+    private int minuteBars;
+
+    @Value("${stocktracker.bars.capacity.5m:288}")
+    private int fiveMinuteBars;
+
+    @Value("${stocktracker.snapshot.recent-trades:20}")
+    private int recentTrades;
+
+    private ScheduledExecutorService publishExecutor;
+
+    public MarketStateService(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @PostConstruct
+    public void start() {
+        publishExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "market-state");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publishExecutor.scheduleWithFixedDelay(this::publishSafely, publishIntervalMs, publishIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        publishExecutor.shutdownNow();
+    }
+
+    public static String destinationOf(String symbol) {
+        return BARS_DESTINATION_PREFIX + symbol;
+    }
+
+    /**
+     * @param live decides, atomically with {@link #remove}, whether a symbol without state may get one
+     */
+    public void onTrade(String symbol, double price, double volume, long timestamp, Predicate<String> live) {
+        SymbolMarketState state = states.get(symbol);
+        if (state == null) {
+            state = states.computeIfAbsent(symbol, key -> live.test(key) ? newState(key) : null);
+            if (state == null) {
+                return;
+            }
+        }
+
+        state.onTrade(price, volume, timestamp);
+        if (state.markDirty()) {
+            dirtyStates.offer(state);
+        }
+    }
+
+    public void seedDay(String symbol, double open, double high, double low, long timestamp) {
+        states.computeIfAbsent(symbol, this::newState).seedDay(open, high, low, timestamp);
+    }
+
+    public SymbolMarketState.Snapshot snapshot(String symbol) {
+        SymbolMarketState state = states.get(symbol);
+        return state == null ? null : state.snapshot();
+    }
+
+    public List<SymbolMarketState.Trade> recentTrades(String symbol) {
+        SymbolMarketState state = states.get(symbol);
+        return state == null ? List.of() : state.recentTrades();
+    }
+
+    public List<BarSeries.Bar> recentBars(String symbol, SymbolMarketState.Resolution resolution, int limit) {
+        SymbolMarketState state = states.get(symbol);
+        return state == null ? null : state.recentBars(resolution, limit);
+    }
+
+    public void remove(String symbol) {
+        states.remove(symbol);
+    }
+
+    void publish() {
+        SymbolMarketState state;
+        while ((state = dirtyStates.poll()) != null) {
+            // Clear before reading, so a trade racing with this publish re-queues the state
+            state.clearDirty();
+            if (states.get(state.getSymbol()) != state) {
+                continue;
+            }
+            messagingTemplate.convertAndSend(destinationOf(state.getSymbol()), state.snapshot());
+        }
+    }
+
+    private void publishSafely() {
+        try {
+            publish();
+        } catch (Exception e) {
+            log.error("Error publishing bar updates: {}", e.getMessage(), e);
+        }
+    }
+
+    private SymbolMarketState newState(String symbol) {
+        return new SymbolMarketState(symbol, new int[]{secondBars, minuteBars, fiveMinuteBars}, recentTrades);
+    }
+}
@@ -1,70 +1,171 @@
 package com.baodo.stocktracker.service;
 
 import com.baodo.stocktracker.dto.response.NewsItemResponse;
+import com.baodo.stocktracker.model.SymbolNews;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.tracing.Span;
 import io.micrometer.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-
-import org.springframework.data.domain.Pageable;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Collections;
 import java.util.List;
 
 @Service
 @Slf4j
 public class NewsService {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final int WINDOW_DAYS = 3;
+
     @Value("${finnhub.api.key}")
     private String apiKey;
 
+    @Value("${stocktracker.news.refresh-interval-ms:60000}")
+    private long refreshIntervalMs;
+
+    @Value("${stocktracker.news.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${stocktracker.news.max-symbols:500}")
+    private long maxSymbols;
+
+    @Value("${stocktracker.news.max-items-per-symbol:200}")
+    private int maxItemsPerSymbol;
+
     private WebClient finnhubClient;
 
+    private FinnhubRequestScheduler requestScheduler;
+
+    private MeterRegistry meterRegistry;
+
     private Tracer tracer;
 
-    public NewsService(WebClient finnhubClient, Tracer tracer) {
+    private final SingleFlight<SymbolNews> inFlightRefreshes = new SingleFlight<>();
+
+    private Cache<String, SymbolNews> newsStore;
+
+    private Counter hits;
+
+    private Counter refreshes;
+
+    private Counter coalesced;
+
+    public NewsService(WebClient finnhubClient, FinnhubRequestScheduler requestScheduler, MeterRegistry meterRegistry, Tracer tracer) {
         this.finnhubClient = finnhubClient;
+        this.requestScheduler = requestScheduler;
+        this.meterRegistry = meterRegistry;
         this.tracer = tracer;
     }
 
-    public List<NewsItemResponse> getCompanyNews(String symbol) {
-        var span = tracer.nextSpan().name("NewsService - getCompanyNews: Fetching company news").start();
-        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
-            log.info("Fetching company news for symbol from Finnhub API: {}", symbol);
+    @PostConstruct
+    public void init() {
+        newsStore = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .maximumSize(maxSymbols)
+                .build();
+
+        hits = Counter.builder("stocktracker.news.requests").tag("result", "hit").register(meterRegistry);
+        refreshes = Counter.builder("stocktracker.news.requests").tag("result", "refresh").register(meterRegistry);
+        coalesced = Counter.builder("stocktracker.news.requests").tag("result", "coalesced").register(meterRegistry);
+    }
+
+    public Mono<List<NewsItemResponse>> getCompanyNews(String symbol) {
+        String key = symbol.toUpperCase();
+
+        SymbolNews cached = newsStore.getIfPresent(key);
+        if (cached != null && cached.isFresh(System.currentTimeMillis(), refreshIntervalMs)) {
+            hits.increment();
+            log.debug("Serving company news for symbol [{}] from memory", key);
+            return Mono.just(cached.getItems());
+        }
+
+        return startRefresh(key, cached).map(SymbolNews::getItems);
+    }
+
+    /**
+     * Streams a symbol's news newest first. Items always come from the merged snapshot (sorted, deduplicated and
+     * window-filtered), even for a symbol with nothing cached yet, so cursors and limits see a stable order.
+     */
+    public Flux<NewsItemResponse> streamCompanyNews(String symbol) {
+        return getCompanyNews(symbol).flatMapMany(Flux::fromIterable);
+    }
+
+    private Mono<SymbolNews> startRefresh(String symbol, SymbolNews cached) {
+        SingleFlight.Joined<SymbolNews> joined = inFlightRefreshes.join(symbol, key -> refresh(key, cached));
+        if (joined.started()) {
+            refreshes.increment();
+        } else {
+            coalesced.increment();
+        }
+        return joined.result();
+    }
+
+    /**
+     * Fetches only from the day of the newest cached article forward and merges the result into the store.
+     * If Finnhub fails but a stale snapshot exists, the stale snapshot is served.
+     */
+    private Mono<SymbolNews> refresh(String symbol, SymbolNews cached) {
+        SymbolNews current = cached != null ? cached : SymbolNews.empty();
+        ZoneId zone = ZoneId.systemDefault();
+
+        LocalDate toDate = LocalDate.now(zone);
+        LocalDate windowStart = toDate.minusDays(WINDOW_DAYS);
+        LocalDate fromDate = current.getNewestDatetime() > 0
+                ? LocalDate.ofInstant(Instant.ofEpochSecond(current.getNewestDatetime()), zone)
+                : windowStart;
+        if (fromDate.isBefore(windowStart)) {
+            fromDate = windowStart;
+        }
+        long oldestDatetime = windowStart.atStartOfDay(zone).toEpochSecond();
+        String from = fromDate.format(DATE_FORMATTER);
 
-            LocalDate toDate = LocalDate.now();
-            LocalDate fromDate = toDate.minusDays(3);
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        Span span = tracer.nextSpan().name("NewsService - getCompanyNews: Fetching company news").start();
+        log.info("Fetching company news for symbol [{}] from Finnhub API since {}", symbol, from);
 
-            try {
-                List<NewsItemResponse> news = finnhubClient.get()
+        return requestScheduler.scheduleMany(FinnhubRequestScheduler.Priority.BACKGROUND, "/company-news", () -> finnhubClient.get()
                         .uri(uriBuilder -> uriBuilder
                                 .path("/company-news")
-                                .queryParam("symbol", symbol.toUpperCase())
-                                .queryParam("from", fromDate.format(formatter))
-                                .queryParam("to", toDate.format(formatter))
+                                .queryParam("symbol", symbol)
+                                .queryParam("from", from)
+                                .queryParam("to", toDate.format(DATE_FORMATTER))
                                 .queryParam("token", apiKey)
                                 .build())
                         .retrieve()
-                        .bodyToFlux(NewsItemResponse.class)
-                        .collectList()
-                        .block();
-
-                return news == null ? Collections.emptyList() : news;
-            } catch (Exception ex) {
-                log.info("Failed to fetch company news from Finnhub for symbol [{}]: {}", symbol, ex.getMessage());
-                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Failed to fetch company news from Finnhub for symbol [" + symbol + "]");
-            }
-        } finally {
-            span.end();
-        }
+                        .bodyToFlux(NewsItemResponse.class))
+                .collectList()
+                .map(items -> {
+                    SymbolNews news = current.merge(items, oldestDatetime, maxItemsPerSymbol, System.currentTimeMillis());
+                    newsStore.put(symbol, news);
+                    log.info("Merged {} fetched article(s) for symbol [{}], {} cached", items.size(), symbol, news.getItems().size());
+                    return news;
+                })
+                .onErrorResume(ex -> {
+                    if (cached != null) {
+                        log.warn("Failed to refresh company news for symbol [{}], serving cached copy: {}", symbol, ex.getMessage());
+                        return Mono.just(cached);
+                    }
+                    if (ex instanceof ResponseStatusException) {
+                        log.info("Company news request for symbol [{}] was shed: {}", symbol, ex.getMessage());
+                        return Mono.error(ex);
+                    }
+                    log.info("Failed to fetch company news from Finnhub for symbol [{}]: {}", symbol, ex.getMessage());
+                    return Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Failed to fetch company news from Finnhub for symbol [" + symbol + "]"));
+                })
+                .doFinally(signal -> span.end());
     }
-
-
 }
@@ -0,0 +1,187 @@
+package com.baodo.stocktracker.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Conflates price ticks per symbol and flushes only the latest price of each dirty symbol
+ * to /topic/price{SYMBOL} on a fixed cadence, on its own thread, so the Finnhub reader never waits on the broker.
+ * Each update carries a per-symbol {@value #SEQUENCE_HEADER} header that grows by one per update, so clients can
+ * match updates against a snapshot and detect missed ones.
+ */
+@Service
+@Slf4j
+public class PriceBroadcaster {
+    public static final String PRICE_DESTINATION_PREFIX = "/topic/price";
+
+    public static final String SEQUENCE_HEADER = "seq";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final LatencyMonitor latencyMonitor;
+
+    private final Map<String, PriceSlot> slots = new ConcurrentHashMap<>();
+
+    private final Queue<PriceSlot> dirtySlots = new ConcurrentLinkedQueue<>();
+
+    @Value("${stocktracker.broadcast.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    private ScheduledExecutorService flushExecutor;
+
+    private final List<Consumer<Map<String, Double>>> flushListeners = new CopyOnWriteArrayList<>();
+
+    public PriceBroadcaster(SimpMessagingTemplate messagingTemplate, LatencyMonitor latencyMonitor) {
+        this.messagingTemplate = messagingTemplate;
+        this.latencyMonitor = latencyMonitor;
+    }
+
+    @PostConstruct
+    public void start() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Price broadcaster started with flush interval {} ms", flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flushExecutor.shutdownNow();
+    }
+
+    public static String destinationOf(String symbol) {
+        return PRICE_DESTINATION_PREFIX + symbol;
+    }
+
+    /**
+     * @param receivedAt when the trade behind the price was read from Finnhub (ms), 0 if unknown (e.g. relayed)
+     * @param live decides, atomically with {@link #remove}, whether a symbol without a slot may get one
+     */
+    public void publish(String symbol, double price, long receivedAt, Predicate<String> live) {
+        PriceSlot slot = slots.get(symbol);
+        if (slot == null) {
+            slot = slots.computeIfAbsent(symbol, key -> live.test(key) ? new PriceSlot(key) : null);
+            if (slot == null) {
+                return;
+            }
+        }
+
+        slot.price = price;
+        slot.receivedAt = receivedAt;
+        if (slot.dirty.compareAndSet(false, true)) {
+            dirtySlots.offer(slot);
+        }
+    }
+
+    public void remove(String symbol) {
+        slots.remove(symbol);
+        latencyMonitor.remove(symbol);
+    }
+
+    /**
+     * Sequence number of the last update sent for a symbol, 0 if none was sent yet.
+     */
+    public long sequenceOf(String symbol) {
+        PriceSlot slot = slots.get(symbol);
+        return slot == null ? 0 : slot.sequence;
+    }
+
+    /**
+     * Price of the last update sent for a symbol, read after {@link #sequenceOf} it is at least as new as that update.
+     */
+    public Double lastPublishedPrice(String symbol) {
+        PriceSlot slot = slots.get(symbol);
+        return slot == null || slot.sequence == 0 ? null : slot.publishedPrice;
+    }
+
+    /**
+     * Receives the conflated prices of every flush after they have been sent locally, e.g. to relay them to other nodes.
+     * Listeners run on the flush thread, where {@link #sequenceOf} is exactly the sequence of the update just sent.
+     */
+    public void addFlushListener(Consumer<Map<String, Double>> flushListener) {
+        flushListeners.add(flushListener);
+    }
+
+    void flush() {
+        Map<String, Double> flushed = flushListeners.isEmpty() ? null : new HashMap<>();
+
+        PriceSlot slot;
+        while ((slot = dirtySlots.poll()) != null) {
+            // Clear before reading, so a tick racing with this flush re-queues the slot
+            slot.dirty.set(false);
+            if (slots.get(slot.symbol) != slot) {
+                continue;
+            }
+            double price = slot.price;
+            long receivedAt = slot.receivedAt;
+            slot.publishedPrice = price;
+            long sequence = ++slot.sequence;
+            messagingTemplate.convertAndSend(slot.destination, price, Map.of(SEQUENCE_HEADER, sequence));
+            if (receivedAt > 0) {
+                latencyMonitor.record(LatencyMonitor.Stage.RECEIVE_BROKER, System.currentTimeMillis() - receivedAt);
+            }
+            // A remove() racing with this flush must not leave a counter behind
+            latencyMonitor.recordUpdate(slot.symbol, slots::containsKey);
+            if (flushed != null) {
+                flushed.put(slot.symbol, price);
+            }
+        }
+
+        if (flushed != null && !flushed.isEmpty()) {
+            for (Consumer<Map<String, Double>> listener : flushListeners) {
+                listener.accept(flushed);
+            }
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Error flushing conflated prices: {}", e.getMessage(), e);
+        }
+    }
+
+    private static final class PriceSlot {
+        private final String symbol;
+
+        private final String destination;
+
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private volatile double price;
+
+        private volatile long receivedAt;
+
+        // Written by the flush thread only
+        private volatile double publishedPrice;
+
+        private volatile long sequence;
+
+        private PriceSlot(String symbol) {
+            this.symbol = symbol;
+            this.destination = destinationOf(symbol);
+        }
+    }
+}
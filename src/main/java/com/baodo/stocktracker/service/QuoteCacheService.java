@@ -0,0 +1,220 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.CachedQuote;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Two-tier quote cache: a bounded on-heap L1 in front of Redis (L2).
+ * Writes land in L1 immediately and are written behind to Redis in batches (one pipelined round trip per flush).
+ */
+@Service
+@Slf4j
+public class QuoteCacheService {
+    private final RedisService redisService;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CachedQuote> pendingWrites = new ConcurrentHashMap<>();
+
+    @Value("${stocktracker.cache.l1.max-size:10000}")
+    private long maxSize;
+
+    @Value("${stocktracker.cache.write-behind.flush-interval-ms:250}")
+    private long flushIntervalMs;
+
+    private Cache<String, CachedQuote> localCache;
+
+    private Counter l1Hits;
+
+    private Counter l2Hits;
+
+    private Counter misses;
+
+    private Counter flushes;
+
+    private Counter flushedKeys;
+
+    private ScheduledExecutorService flushExecutor;
+
+    public QuoteCacheService(RedisService redisService, MeterRegistry meterRegistry) {
+        this.redisService = redisService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "quotes-l1");
+
+        l1Hits = Counter.builder("stocktracker.quote.cache.requests").tag("result", "hit").tag("tier", "l1").register(meterRegistry);
+        l2Hits = Counter.builder("stocktracker.quote.cache.requests").tag("result", "hit").tag("tier", "l2").register(meterRegistry);
+        misses = Counter.builder("stocktracker.quote.cache.requests").tag("result", "miss").tag("tier", "l2").register(meterRegistry);
+        flushes = Counter.builder("stocktracker.quote.cache.flushes").register(meterRegistry);
+        flushedKeys = Counter.builder("stocktracker.quote.cache.flushed.keys").register(meterRegistry);
+        meterRegistry.gauge("stocktracker.quote.cache.pending.writes", pendingWrites, Map::size);
+
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quote-cache-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Quote cache started: L1 max size {}, write-behind every {} ms", maxSize, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flushExecutor.shutdownNow();
+        flushSafely();
+    }
+
+    public CachedQuote get(String symbol) {
+        CachedQuote quote = localCache.getIfPresent(symbol);
+        if (quote != null) {
+            l1Hits.increment();
+            return quote;
+        }
+
+        quote = redisService.getQuote(symbol);
+        if (quote != null) {
+            l2Hits.increment();
+            localCache.put(symbol, quote);
+            return quote;
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Looks up several symbols at once: L1 first, then a single Redis round trip for the rest.
+     * The result holds only the symbols found.
+     */
+    public Map<String, CachedQuote> getAll(Collection<String> symbols) {
+        Map<String, CachedQuote> quotes = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String symbol : symbols) {
+            CachedQuote quote = localCache.getIfPresent(symbol);
+            if (quote != null) {
+                l1Hits.increment();
+                quotes.put(symbol, quote);
+            } else {
+                missing.add(symbol);
+            }
+        }
+        if (missing.isEmpty()) {
+            return quotes;
+        }
+
+        Map<String, CachedQuote> found = redisService.getQuotes(missing);
+        l2Hits.increment(found.size());
+        misses.increment(missing.size() - found.size());
+        localCache.putAll(found);
+        quotes.putAll(found);
+        return quotes;
+    }
+
+    public void put(String symbol, CachedQuote quote) {
+        localCache.put(symbol, quote);
+        pendingWrites.put(symbol, quote);
+    }
+
+    /**
+     * Folds a trade into the cached quote. A symbol without a cached quote only gets one while {@code live} holds;
+     * the check and the write-behind enqueue happen under the L1 entry's lock, so they cannot interleave with {@link #evict}.
+     */
+    public void putTrade(String symbol, double price, double volume, long timestamp, Predicate<String> live) {
+        localCache.asMap().compute(symbol, (key, previous) -> {
+            if (previous == null && !live.test(key)) {
+                return null;
+            }
+            CachedQuote quote = previous == null ? CachedQuote.ofTrade(price, volume, timestamp) : previous.withTrade(price, volume, timestamp);
+            pendingWrites.put(key, quote);
+            return quote;
+        });
+    }
+
+    /**
+     * Drops only the on-heap copy, e.g. when another node has written a newer quote to Redis.
+     */
+    public void invalidateLocal(String symbol) {
+        localCache.invalidate(symbol);
+    }
+
+    /**
+     * Drops the quote from both tiers. The Redis DELETE runs on the write-behind thread so it is ordered after any
+     * flush that already drained this symbol; deleting inline could land before that flush's write and resurrect the key.
+     */
+    public void evict(String symbol) {
+        localCache.invalidate(symbol);
+        pendingWrites.remove(symbol);
+        try {
+            flushExecutor.execute(() -> deleteSafely(symbol));
+        } catch (RejectedExecutionException e) {
+            deleteSafely(symbol);
+        }
+    }
+
+    void flush() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+
+        Map<String, CachedQuote> batch = new HashMap<>();
+        Iterator<Map.Entry<String, CachedQuote>> iterator = pendingWrites.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CachedQuote> entry = iterator.next();
+            // Only drop the entry if no newer price replaced it while we were iterating
+            if (pendingWrites.remove(entry.getKey(), entry.getValue())) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            redisService.saveQuotes(batch);
+            flushes.increment();
+            flushedKeys.increment(batch.size());
+        }
+    }
+
+    private void deleteSafely(String symbol) {
+        try {
+            redisService.delete(symbol);
+        } catch (Exception e) {
+            log.error("Error evicting quote for {} from Redis: {}", symbol, e.getMessage(), e);
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Error writing quotes behind to Redis: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.CachedQuote;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-width binary codec for cached quotes (40 bytes, big-endian):
+ * price(8) | volume(8) | timestamp(8) | dayHigh(8) | dayLow(8).
+ */
+public class QuoteCodec implements RedisSerializer<CachedQuote> {
+    public static final int RECORD_SIZE = 40;
+
+    private static final VarHandle DOUBLE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    @Override
+    public byte[] serialize(CachedQuote quote) throws SerializationException {
+        if (quote == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[RECORD_SIZE];
+        DOUBLE.set(bytes, 0, quote.getPrice());
+        DOUBLE.set(bytes, 8, quote.getVolume());
+        LONG.set(bytes, 16, quote.getTimestamp());
+        DOUBLE.set(bytes, 24, quote.getDayHigh());
+        DOUBLE.set(bytes, 32, quote.getDayLow());
+        return bytes;
+    }
+
+    @Override
+    public CachedQuote deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != RECORD_SIZE) {
+            throw new SerializationException("Invalid quote record length: " + bytes.length);
+        }
+
+        return new CachedQuote(
+                (double) DOUBLE.get(bytes, 0),
+                (double) DOUBLE.get(bytes, 8),
+                (long) LONG.get(bytes, 16),
+                (double) DOUBLE.get(bytes, 24),
+                (double) DOUBLE.get(bytes, 32)
+        );
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return CachedQuote.class;
+    }
+}
@@ -0,0 +1,95 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.dto.response.SymbolQuoteResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Single-flight layer around {@link FinnhubService#getQuote(String)}: concurrent lookups of the same symbol
+ * share one in-flight request, and symbols Finnhub reports as invalid are remembered for a short while.
+ */
+@Service
+@Slf4j
+public class QuoteLookupService {
+    private final FinnhubService finnhubService;
+
+    private final MeterRegistry meterRegistry;
+
+    private final SingleFlight<SymbolQuoteResponse> inFlight = new SingleFlight<>();
+
+    private final long negativeCacheTtlSeconds;
+
+    private final long negativeCacheMaxSize;
+
+    private Cache<String, Boolean> invalidSymbols;
+
+    private Counter fetched;
+
+    private Counter coalesced;
+
+    private Counter negativeHits;
+
+    public QuoteLookupService(FinnhubService finnhubService, MeterRegistry meterRegistry,
+                              @Value("${stocktracker.quote.negative-cache.ttl-seconds:30}") long negativeCacheTtlSeconds,
+                              @Value("${stocktracker.quote.negative-cache.max-size:10000}") long negativeCacheMaxSize) {
+        this.finnhubService = finnhubService;
+        this.meterRegistry = meterRegistry;
+        this.negativeCacheTtlSeconds = negativeCacheTtlSeconds;
+        this.negativeCacheMaxSize = negativeCacheMaxSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        invalidSymbols = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(negativeCacheTtlSeconds))
+                .maximumSize(negativeCacheMaxSize)
+                .build();
+
+        fetched = Counter.builder("stocktracker.quote.lookups").tag("outcome", "fetched").register(meterRegistry);
+        coalesced = Counter.builder("stocktracker.quote.lookups").tag("outcome", "coalesced").register(meterRegistry);
+        negativeHits = Counter.builder("stocktracker.quote.lookups").tag("outcome", "negative-cache").register(meterRegistry);
+        meterRegistry.gauge("stocktracker.quote.lookups.in.flight", inFlight, SingleFlight::size);
+    }
+
+    public Mono<SymbolQuoteResponse> lookup(String symbol) {
+        if (invalidSymbols.getIfPresent(symbol) != null) {
+            negativeHits.increment();
+            log.debug("Symbol [{}] is in the negative cache", symbol);
+            return Mono.error(notFound(symbol));
+        }
+
+        SingleFlight.Joined<SymbolQuoteResponse> joined = inFlight.join(symbol, this::fetch);
+        if (joined.started()) {
+            fetched.increment();
+        } else {
+            coalesced.increment();
+            log.debug("Coalesced quote lookup for symbol [{}] onto the in-flight request", symbol);
+        }
+        return joined.result();
+    }
+
+    private Mono<SymbolQuoteResponse> fetch(String symbol) {
+        return finnhubService.getQuote(symbol)
+                .filter(quote -> quote.getC() != 0.0 || quote.getT() != 0)
+                .switchIfEmpty(Mono.error(() -> {
+                    log.info("Symbol [{}] is invalid or has no trade data", symbol);
+                    invalidSymbols.put(symbol, Boolean.TRUE);
+                    return notFound(symbol);
+                }));
+    }
+
+    private static ResponseStatusException notFound(String symbol) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Symbol [" + symbol + "] not found");
+    }
+}
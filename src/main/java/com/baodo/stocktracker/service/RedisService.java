@@ -1,72 +1,154 @@
 package com.baodo.stocktracker.service;
 
+import com.baodo.stocktracker.config.TracingTier;
+import com.baodo.stocktracker.model.CachedQuote;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.micrometer.tracing.Tracer;
 import io.micrometer.tracing.Span;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.data.redis.connection.RedisServerCommands;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 
+/**
+ * Redis access for the quote cache. Every command is timed by a pre-registered {@code stocktracker.redis.commands}
+ * timer; per-command spans are only opened in the {@link TracingTier#FULL} tier, since the write-behind flush
+ * would otherwise export a span several times a second.
+ */
 @Service
 @Slf4j
 public class RedisService {
 
     private final RedisTemplate<String, Object> redisTemplate;
 
+    private final RedisTemplate<String, CachedQuote> quoteRedisTemplate;
+
     private final Tracer tracer;
 
-    public RedisService(RedisTemplate<String, Object> redisTemplate,  Tracer tracer) {
+    private final boolean traced;
+
+    private final Duration quoteTtl;
+
+    private final Timer saveTimer;
+
+    private final Timer saveQuotesTimer;
+
+    private final Timer getQuoteTimer;
+
+    private final Timer getQuotesTimer;
+
+    private final Timer getTimer;
+
+    private final Timer existsTimer;
+
+    private final Timer deleteTimer;
+
+    public RedisService(RedisTemplate<String, Object> redisTemplate, RedisTemplate<String, CachedQuote> quoteRedisTemplate, Tracer tracer,
+                        MeterRegistry meterRegistry, @Value("${stocktracker.tracing.tier:CONTROL_PLANE}") TracingTier tracingTier,
+                        @Value("${stocktracker.cache.redis.ttl-seconds:3600}") long quoteTtlSeconds) {
         this.redisTemplate = redisTemplate;
+        this.quoteRedisTemplate = quoteRedisTemplate;
         this.tracer = tracer;
+        this.traced = tracingTier == TracingTier.FULL;
+        this.quoteTtl = Duration.ofSeconds(quoteTtlSeconds);
+
+        this.saveTimer = commandTimer(meterRegistry, "save");
+        this.saveQuotesTimer = commandTimer(meterRegistry, "save-quotes");
+        this.getQuoteTimer = commandTimer(meterRegistry, "get-quote");
+        this.getQuotesTimer = commandTimer(meterRegistry, "get-quotes");
+        this.getTimer = commandTimer(meterRegistry, "get");
+        this.existsTimer = commandTimer(meterRegistry, "exists");
+        this.deleteTimer = commandTimer(meterRegistry, "delete");
     }
 
     public void save(String symbol, Object value) {
-        Span span = tracer.nextSpan().name("RedisService - save: Saving Symbol to Cache");
-        try (Tracer.SpanInScope ignored = tracer.withSpan(span.start())) {
+        record("RedisService - save: Saving Symbol to Cache", saveTimer, () -> {
             redisTemplate.opsForValue().set(symbol, value);
-            log.info("Saved to Redis: [{}] = {}", symbol, value);
-        } finally {
-            span.end();
-        }
+            log.debug("Saved to Redis: [{}] = {}", symbol, value);
+            return null;
+        });
+    }
+
+    /**
+     * Writes the quotes in one pipelined round trip. MSET cannot carry an expiry, so each key is a SET EX: a quote
+     * whose symbol is no longer tracked anywhere ages out instead of living in Redis forever.
+     */
+    public void saveQuotes(Map<String, CachedQuote> quotes) {
+        record("RedisService - saveQuotes: Saving Quotes to Cache", saveQuotesTimer, () -> {
+            quoteRedisTemplate.executePipelined(new SessionCallback<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, CachedQuote> quoteOperations = (RedisOperations<String, CachedQuote>) operations;
+                    quotes.forEach((symbol, quote) -> quoteOperations.opsForValue().set(symbol, quote, quoteTtl));
+                    return null;
+                }
+            });
+            log.debug("Saved {} quotes to Redis", quotes.size());
+            return null;
+        });
+    }
+
+    public CachedQuote getQuote(String symbol) {
+        return record("RedisService - getQuote: Getting Quote from Cache", getQuoteTimer,
+                () -> quoteRedisTemplate.opsForValue().get(symbol));
+    }
+
+    /**
+     * Reads several quotes in one MGET; the result holds only the symbols found.
+     */
+    public Map<String, CachedQuote> getQuotes(List<String> symbols) {
+        return record("RedisService - getQuotes: Getting Quotes from Cache", getQuotesTimer, () -> {
+            List<CachedQuote> values = quoteRedisTemplate.opsForValue().multiGet(symbols);
+            Map<String, CachedQuote> quotes = new HashMap<>();
+            for (int i = 0; values != null && i < symbols.size(); i++) {
+                if (values.get(i) != null) {
+                    quotes.put(symbols.get(i), values.get(i));
+                }
+            }
+            log.debug("Fetched {} of {} quotes from Redis", quotes.size(), symbols.size());
+            return quotes;
+        });
     }
 
     public <T> T get(String key, Class<T> classType) {
-        Span span = tracer.nextSpan().name("RedisService - get:  Getting Symbol from Cache");
-        try (Tracer.SpanInScope ignored = tracer.withSpan(span.start())) {
+        return record("RedisService - get:  Getting Symbol from Cache", getTimer, () -> {
             Object value = redisTemplate.opsForValue().get(key);
             if (classType.isInstance(value)) {
-                log.info("Fetched [{}] from Redis", key);
+                log.debug("Fetched [{}] from Redis", key);
                 return classType.cast(value);
             }
             log.warn("Value for key [{}] not found or type mismatch", key);
             return null;
-        } finally {
-            span.end();
-        }
+        });
     }
 
     public boolean exists(String symbol) {
-        Span span = tracer.nextSpan().name("RedisService - exists: Checking Existence of Symbol");
-        try (Tracer.SpanInScope ignored = tracer.withSpan(span.start())) {
-            log.info("Checking existence of [{}] in Redis", symbol);
+        return record("RedisService - exists: Checking Existence of Symbol", existsTimer, () -> {
+            log.debug("Checking existence of [{}] in Redis", symbol);
             return redisTemplate.hasKey(symbol);
-        } finally {
-            span.end();
-        }
+        });
     }
 
     public void delete(String symbol) {
-        Span span = tracer.nextSpan().name("RedisService - delete:  Deleting Symbol");
-        try (Tracer.SpanInScope ignored = tracer.withSpan(span.start())) {
+        record("RedisService - delete:  Deleting Symbol", deleteTimer, () -> {
             redisTemplate.delete(symbol);
-            log.info("Deleted key [{}] from Redis", symbol);
-        } finally {
-            span.end();
-        }
+            log.debug("Deleted key [{}] from Redis", symbol);
+            return null;
+        });
     }
 
 
@@ -80,4 +162,21 @@ public class RedisService {
             log.error("Error flushing Redis on startup: {}", e.getMessage(), e);
         }
     }
+
+    private <T> T record(String spanName, Timer timer, Supplier<T> command) {
+        if (!traced) {
+            return timer.record(command);
+        }
+
+        Span span = tracer.nextSpan().name(spanName);
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span.start())) {
+            return timer.record(command);
+        } finally {
+            span.end();
+        }
+    }
+
+    private static Timer commandTimer(MeterRegistry meterRegistry, String command) {
+        return Timer.builder("stocktracker.redis.commands").tag("command", command).register(meterRegistry);
+    }
 }
@@ -0,0 +1,51 @@
+package com.baodo.stocktracker.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * One in-flight request per key: callers joining while a request for the key runs share its result, and the key is
+ * free again as soon as that request terminates. Requests start on their first subscription.
+ */
+final class SingleFlight<T> {
+    /**
+     * @param started whether this call started the request, rather than joining one already running
+     */
+    record Joined<T>(Mono<T> result, boolean started) {
+    }
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    Joined<T> join(String key, Function<String, Mono<T>> request) {
+        boolean[] started = new boolean[1];
+        Flight flight = inFlight.computeIfAbsent(key, k -> {
+            started[0] = true;
+            return new Flight(k, request.apply(k));
+        });
+        return new Joined<>(flight.result, started[0]);
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+
+    private final class Flight {
+        private final Mono<T> result;
+
+        private Flight(String key, Mono<T> request) {
+            // Released before subscribers see the result, so a caller that has it never joins a finished flight;
+            // removes only this flight, never a newer one started for the same key
+            this.result = request
+                    .doOnTerminate(() -> release(key))
+                    .doOnCancel(() -> release(key))
+                    .cache();
+        }
+
+        private void release(String key) {
+            inFlight.remove(key, this);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-session outbound backpressure for STOMP clients.
+ * Every session gets a {@link ConflatingWebSocketSession}, so a client on a slow link only ever holds the latest price
+ * per symbol plus at most {@code stocktracker.ws.outbound.max-queue-depth} other frames. A session whose queue stays
+ * above {@code slow-consumer-threshold} for {@code slow-consumer-grace-ms} is either disconnected or downgraded to
+ * batched updates every {@code downgrade-interval-ms}, depending on {@code slow-consumer-policy}; a downgraded
+ * session that is still congested after another grace period is disconnected.
+ */
+@Service
+@Slf4j
+public class StompOutboundPolicy {
+    public enum SlowConsumerAction { DISCONNECT, DOWNGRADE }
+
+    public record SessionStats(int queueDepth, int maxQueueDepth, long sent, long conflated, long dropped, boolean downgraded) {
+    }
+
+    private final Map<String, ConflatingWebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Getter
+    private final int maxQueueDepth;
+
+    @Getter
+    private final int slowConsumerThreshold;
+
+    @Getter
+    private final long slowConsumerGraceMs;
+
+    private final long downgradeIntervalMs;
+
+    private final SlowConsumerAction slowConsumerAction;
+
+    private final ScheduledExecutorService drainExecutor;
+
+    private final Counter conflatedFrames;
+
+    private final Counter droppedFrames;
+
+    private final Counter disconnected;
+
+    private final Counter downgraded;
+
+    private final LatencyMonitor latencyMonitor;
+
+    public StompOutboundPolicy(MeterRegistry meterRegistry,
+                               LatencyMonitor latencyMonitor,
+                               @Value("${stocktracker.ws.outbound.max-queue-depth:256}") int maxQueueDepth,
+                               @Value("${stocktracker.ws.outbound.slow-consumer-threshold:128}") int slowConsumerThreshold,
+                               @Value("${stocktracker.ws.outbound.slow-consumer-grace-ms:5000}") long slowConsumerGraceMs,
+                               @Value("${stocktracker.ws.outbound.downgrade-interval-ms:1000}") long downgradeIntervalMs,
+                               @Value("${stocktracker.ws.outbound.slow-consumer-policy:DOWNGRADE}") SlowConsumerAction slowConsumerAction,
+                               @Value("${stocktracker.ws.outbound.threads:0}") int threads) {
+        this.maxQueueDepth = maxQueueDepth;
+        this.slowConsumerThreshold = slowConsumerThreshold;
+        this.slowConsumerGraceMs = slowConsumerGraceMs;
+        this.downgradeIntervalMs = downgradeIntervalMs;
+        this.slowConsumerAction = slowConsumerAction;
+        this.latencyMonitor = latencyMonitor;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.drainExecutor = Executors.newScheduledThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "stomp-outbound-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.conflatedFrames = Counter.builder("stocktracker.ws.outbound.frames").tag("result", "conflated").register(meterRegistry);
+        this.droppedFrames = Counter.builder("stocktracker.ws.outbound.frames").tag("result", "dropped").register(meterRegistry);
+        this.disconnected = Counter.builder("stocktracker.ws.outbound.slow.consumers").tag("action", "disconnect").register(meterRegistry);
+        this.downgraded = Counter.builder("stocktracker.ws.outbound.slow.consumers").tag("action", "downgrade").register(meterRegistry);
+        Gauge.builder("stocktracker.ws.outbound.sessions", sessions, Map::size).register(meterRegistry);
+        Gauge.builder("stocktracker.ws.outbound.queued", this, policy -> policy.totalDepth()).register(meterRegistry);
+        Gauge.builder("stocktracker.ws.outbound.queue.depth.max", this, policy -> policy.largestDepth()).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        drainExecutor.shutdownNow();
+    }
+
+    /**
+     * Wraps the STOMP sub-protocol handler so every session it sees goes through this policy.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                ConflatingWebSocketSession conflating = new ConflatingWebSocketSession(session, StompOutboundPolicy.this);
+                sessions.put(session.getId(), conflating);
+                super.afterConnectionEstablished(conflating);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                ConflatingWebSocketSession conflating = sessions.remove(session.getId());
+                if (conflating != null) {
+                    log.info("Session [{}] outbound: sent {}, conflated {}, dropped {}, max queue depth {}", session.getId(),
+                            conflating.sent.sum(), conflating.conflated.sum(), conflating.dropped.sum(), conflating.getMaxDepth());
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    public Map<String, SessionStats> sessionStats() {
+        Map<String, SessionStats> stats = new LinkedHashMap<>();
+        sessions.forEach((id, session) -> stats.put(id, new SessionStats(session.getDepth(), session.getMaxDepth(),
+                session.sent.sum(), session.conflated.sum(), session.dropped.sum(), session.isDowngraded())));
+        return stats;
+    }
+
+    void scheduleDrain(Runnable drain, boolean downgradedSession) {
+        if (downgradedSession) {
+            drainExecutor.schedule(drain, downgradeIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            drainExecutor.execute(drain);
+        }
+    }
+
+    void onConflated() {
+        conflatedFrames.increment();
+    }
+
+    void onDropped() {
+        droppedFrames.increment();
+    }
+
+    void onWritten(long queuedNanos) {
+        latencyMonitor.recordNanos(LatencyMonitor.Stage.BROKER_SOCKET, queuedNanos);
+    }
+
+    void onSlowConsumer(ConflatingWebSocketSession session) {
+        // A session that stays congested even after being downgraded is disconnected
+        if (slowConsumerAction == SlowConsumerAction.DISCONNECT || session.isDowngraded()) {
+            log.warn("Session [{}] is a slow consumer ({} frames queued), disconnecting it", session.getId(), session.getDepth());
+            disconnected.increment();
+            session.abort(CloseStatus.SESSION_NOT_RELIABLE.withReason("Slow consumer"));
+        } else {
+            log.warn("Session [{}] is a slow consumer ({} frames queued), downgrading it to batched updates every {} ms",
+                    session.getId(), session.getDepth(), downgradeIntervalMs);
+            downgraded.increment();
+            session.downgrade();
+        }
+    }
+
+    private int totalDepth() {
+        int total = 0;
+        for (ConflatingWebSocketSession session : sessions.values()) {
+            total += session.getDepth();
+        }
+        return total;
+    }
+
+    private int largestDepth() {
+        int largest = 0;
+        for (ConflatingWebSocketSession session : sessions.values()) {
+            largest = Math.max(largest, session.getDepth());
+        }
+        return largest;
+    }
+}
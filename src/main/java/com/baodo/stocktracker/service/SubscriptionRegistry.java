@@ -0,0 +1,102 @@
+package com.baodo.stocktracker.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Tracks which STOMP sessions view which symbols, with a reverse index from session to symbols.
+ * The refcount change is atomic per symbol; first-viewer and last-viewer callbacks run after it, outside the
+ * ConcurrentHashMap bin lock, so they may do I/O. Transitions of one symbol can therefore reach their callbacks
+ * out of order, and callbacks must re-check {@link #viewerCount(String)} before acting.
+ */
+@Service
+@Slf4j
+public class SubscriptionRegistry {
+    private final Map<String, Set<String>> symbolViewers = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> sessionSymbols = new ConcurrentHashMap<>();
+
+    public boolean addViewer(String symbol, String sessionId, Consumer<String> onFirstViewer) {
+        sessionSymbols.computeIfAbsent(sessionId, key -> ConcurrentHashMap.newKeySet()).add(symbol);
+
+        boolean[] first = new boolean[1];
+        symbolViewers.compute(symbol, (key, viewers) -> {
+            if (viewers == null) {
+                viewers = ConcurrentHashMap.newKeySet();
+            }
+            first[0] = viewers.add(sessionId) && viewers.size() == 1;
+            return viewers;
+        });
+        if (first[0]) {
+            onFirstViewer.accept(symbol);
+        }
+        return first[0];
+    }
+
+    public boolean removeViewer(String symbol, String sessionId, Consumer<String> onLastViewer) {
+        Set<String> symbols = sessionSymbols.get(sessionId);
+        if (symbols != null) {
+            symbols.remove(symbol);
+        }
+        return detach(symbol, sessionId, onLastViewer);
+    }
+
+    /**
+     * Removes every subscription of a session, touching only the symbols that session was viewing.
+     */
+    public Set<String> removeSession(String sessionId, Consumer<String> onLastViewer) {
+        Set<String> symbols = sessionSymbols.remove(sessionId);
+        if (symbols == null) {
+            return Collections.emptySet();
+        }
+
+        for (String symbol : symbols) {
+            detach(symbol, sessionId, onLastViewer);
+        }
+        return symbols;
+    }
+
+    public int viewerCount(String symbol) {
+        Set<String> viewers = symbolViewers.get(symbol);
+        return viewers == null ? 0 : viewers.size();
+    }
+
+    public Set<String> viewersOf(String symbol) {
+        Set<String> viewers = symbolViewers.get(symbol);
+        return viewers == null ? Collections.emptySet() : Collections.unmodifiableSet(viewers);
+    }
+
+    public Set<String> symbolsOf(String sessionId) {
+        Set<String> symbols = sessionSymbols.get(sessionId);
+        return symbols == null ? Collections.emptySet() : Collections.unmodifiableSet(symbols);
+    }
+
+    public Set<String> activeSymbols() {
+        return Collections.unmodifiableSet(symbolViewers.keySet());
+    }
+
+    private boolean detach(String symbol, String sessionId, Consumer<String> onLastViewer) {
+        boolean[] last = new boolean[1];
+        symbolViewers.computeIfPresent(symbol, (key, viewers) -> {
+            if (!viewers.remove(sessionId)) {
+                return viewers;
+            }
+            log.debug("Removed session [{}] from viewers of symbol [{}]", sessionId, key);
+            if (viewers.isEmpty()) {
+                last[0] = true;
+                return null;
+            }
+            return viewers;
+        });
+        if (last[0]) {
+            onLastViewer.accept(symbol);
+        }
+        return last[0];
+    }
+}
@@ -0,0 +1,154 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps symbols that just lost their last viewer subscribed and cached for {@code stocktracker.linger.duration-seconds},
+ * so a viewer coming back shortly after gets a warm quote without a Finnhub round trip or resubscription.
+ * At most {@code stocktracker.linger.max-symbols} symbols linger; beyond that the one abandoned longest ago is torn down.
+ * Teardown and reclaim of a symbol race on removing its entry, so exactly one of them wins; the teardown itself
+ * runs after the entry is gone, outside any map lock.
+ */
+@Service
+@Slf4j
+public class SymbolLingerService {
+    private static final long SWEEP_INTERVAL_MS = 1_000;
+
+    private final Map<String, Lingering> lingering = new ConcurrentHashMap<>();
+
+    private final long lingerMs;
+
+    private final int maxSymbols;
+
+    private final Counter warmResubscribes;
+
+    private final Counter expired;
+
+    private final Counter evicted;
+
+    private ScheduledExecutorService sweepExecutor;
+
+    public SymbolLingerService(MeterRegistry meterRegistry,
+                               @Value("${stocktracker.linger.duration-seconds:30}") long lingerSeconds,
+                               @Value("${stocktracker.linger.max-symbols:100}") int maxSymbols) {
+        this.lingerMs = TimeUnit.SECONDS.toMillis(lingerSeconds);
+        this.maxSymbols = maxSymbols;
+
+        this.warmResubscribes = Counter.builder("stocktracker.symbols.linger").tag("outcome", "warm-resubscribe").register(meterRegistry);
+        this.expired = Counter.builder("stocktracker.symbols.linger").tag("outcome", "expired").register(meterRegistry);
+        this.evicted = Counter.builder("stocktracker.symbols.linger").tag("outcome", "evicted").register(meterRegistry);
+        Gauge.builder("stocktracker.symbols.lingering", lingering, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        sweepExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "symbol-linger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweepExecutor.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweepExecutor != null) {
+            sweepExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Parks a symbol that has no viewers left; {@code teardown} runs once it expires or is pushed out by the cap.
+     */
+    public void linger(String symbol, Consumer<String> teardown) {
+        if (lingerMs <= 0 || maxSymbols <= 0) {
+            teardown.accept(symbol);
+            return;
+        }
+
+        lingering.put(symbol, new Lingering(System.currentTimeMillis(), teardown));
+        log.debug("Symbol [{}] has no viewers, lingering for {} ms", symbol, lingerMs);
+
+        while (lingering.size() > maxSymbols) {
+            String oldest = oldestSymbol();
+            if (oldest == null || !tearDown(oldest, Long.MAX_VALUE)) {
+                break;
+            }
+            evicted.increment();
+        }
+    }
+
+    /**
+     * Takes a symbol back out of the linger set.
+     * @return true if it was still lingering, so it is still subscribed and cached
+     */
+    public boolean reclaim(String symbol) {
+        if (lingering.remove(symbol) == null) {
+            return false;
+        }
+        warmResubscribes.increment();
+        log.debug("Symbol [{}] picked up again while lingering", symbol);
+        return true;
+    }
+
+    public boolean isLingering(String symbol) {
+        return lingering.containsKey(symbol);
+    }
+
+    public Set<String> lingeringSymbols() {
+        return Collections.unmodifiableSet(lingering.keySet());
+    }
+
+    private void sweep() {
+        long cutoff = System.currentTimeMillis() - lingerMs;
+        for (String symbol : lingering.keySet()) {
+            try {
+                if (tearDown(symbol, cutoff)) {
+                    expired.increment();
+                }
+            } catch (RuntimeException e) {
+                log.error("Error tearing down lingering symbol [{}]", symbol, e);
+            }
+        }
+    }
+
+    private boolean tearDown(String symbol, long cutoff) {
+        Lingering entry = lingering.get(symbol);
+        if (entry == null || entry.since() > cutoff || !lingering.remove(symbol, entry)) {
+            return false;
+        }
+        entry.teardown().accept(symbol);
+        return true;
+    }
+
+    private String oldestSymbol() {
+        String oldest = null;
+        long oldestSince = Long.MAX_VALUE;
+        for (Map.Entry<String, Lingering> entry : lingering.entrySet()) {
+            if (entry.getValue().since() < oldestSince) {
+                oldest = entry.getKey();
+                oldestSince = entry.getValue().since();
+            }
+        }
+        return oldest;
+    }
+
+    private record Lingering(long since, Consumer<String> teardown) {
+    }
+}
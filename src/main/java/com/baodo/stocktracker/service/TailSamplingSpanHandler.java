@@ -0,0 +1,122 @@
+package com.baodo.stocktracker.service;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Tail-based sampling in front of the span exporters: finished spans are held per local trace until its root span
+ * finishes, then the whole trace is handed to the exporters only if the root took at least the latency threshold or
+ * any span failed. Spans that finish after the decision follow it. Runs first in Brave's handler chain and stops the
+ * chain itself, so exporters only ever see spans through this handler.
+ */
+public class TailSamplingSpanHandler extends SpanHandler implements Ordered {
+    private record BufferedSpan(TraceContext context, MutableSpan span) {
+    }
+
+    private final Supplier<List<SpanHandler>> exporters;
+
+    private final long latencyThresholdMicros;
+
+    private final Cache<Long, Queue<BufferedSpan>> pending;
+
+    private final Cache<Long, Boolean> decisions;
+
+    private final Counter kept;
+
+    private final Counter dropped;
+
+    private volatile List<SpanHandler> resolvedExporters;
+
+    public TailSamplingSpanHandler(Supplier<List<SpanHandler>> exporters, long latencyThresholdMs, int maxTraces, MeterRegistry meterRegistry) {
+        this.exporters = exporters;
+        this.latencyThresholdMicros = TimeUnit.MILLISECONDS.toMicros(latencyThresholdMs);
+        // Traces whose root never finishes are evicted instead of held forever
+        this.pending = Caffeine.newBuilder().maximumSize(maxTraces).expireAfterWrite(Duration.ofMinutes(1)).build();
+        this.decisions = Caffeine.newBuilder().maximumSize(maxTraces).expireAfterWrite(Duration.ofMinutes(1)).build();
+
+        this.kept = Counter.builder("stocktracker.tracing.tail.traces").tag("decision", "kept").register(meterRegistry);
+        this.dropped = Counter.builder("stocktracker.tracing.tail.traces").tag("decision", "dropped").register(meterRegistry);
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause != Cause.FINISHED) {
+            return true;
+        }
+
+        long root = context.localRootId();
+        Boolean decision = decisions.getIfPresent(root);
+        if (decision != null) {
+            if (decision) {
+                export(context, span);
+            }
+            return false;
+        }
+
+        if (context.spanId() != root) {
+            pending.asMap().computeIfAbsent(root, key -> new ConcurrentLinkedQueue<>()).add(new BufferedSpan(context, span));
+            // The root may have been decided while this span was being buffered
+            decision = decisions.getIfPresent(root);
+            if (decision != null) {
+                drain(root, decision);
+            }
+            return false;
+        }
+
+        Queue<BufferedSpan> children = pending.asMap().remove(root);
+        boolean keep = span.finishTimestamp() - span.startTimestamp() >= latencyThresholdMicros || isError(span)
+                || children != null && children.stream().anyMatch(child -> isError(child.span()));
+        decisions.put(root, keep);
+        (keep ? kept : dropped).increment();
+
+        if (keep) {
+            if (children != null) {
+                children.forEach(child -> export(child.context(), child.span()));
+            }
+            export(context, span);
+        }
+        drain(root, keep);
+        return false;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private void drain(long root, boolean keep) {
+        Queue<BufferedSpan> late = pending.asMap().remove(root);
+        if (late != null && keep) {
+            late.forEach(child -> export(child.context(), child.span()));
+        }
+    }
+
+    private void export(TraceContext context, MutableSpan span) {
+        List<SpanHandler> handlers = resolvedExporters;
+        if (handlers == null) {
+            handlers = resolvedExporters = exporters.get();
+        }
+        for (SpanHandler handler : handlers) {
+            if (!handler.end(context, span, Cause.FINISHED)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isError(MutableSpan span) {
+        return span.error() != null || span.tag("error") != null;
+    }
+}
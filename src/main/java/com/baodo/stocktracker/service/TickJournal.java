@@ -0,0 +1,381 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.Tick;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of every upstream trade, fed by the journal stage of the {@link TradePipeline}.
+ * Trades are fixed-width {@value #RECORD_SIZE}-byte records (symbol id, timestamp, price, volume) in rolling
+ * memory-mapped segment files of {@code stocktracker.journal.segment-size-mb}; symbol ids are kept in symbols.txt.
+ * Each symbol has a sparse in-memory time index (one entry per {@code index-interval-ms}), rebuilt by scanning the
+ * segments on start. Replays read the records straight out of the mapped segments, without read calls or heap copies
+ * of the file, and only materialise the matching ones.
+ * A single writer thread appends; readers only look at records below the committed position.
+ */
+@Service
+@Slf4j
+public class TickJournal {
+    @FunctionalInterface
+    public interface TickVisitor {
+        /**
+         * @return false to stop the replay
+         */
+        boolean visit(int symbolId, long timestamp, double price, double volume);
+    }
+
+    static final int RECORD_SIZE = 32;
+
+    private static final String SEGMENT_PREFIX = "ticks-";
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final String SYMBOLS_FILE = "symbols.txt";
+
+    @Getter
+    private final boolean enabled;
+
+    private final Path directory;
+
+    private final long recordsPerSegment;
+
+    private final int maxSegments;
+
+    private final long indexIntervalMs;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Integer> symbolIds = new ConcurrentHashMap<>();
+
+    private final List<String> symbolNames = new ArrayList<>();
+
+    private final Map<Integer, SymbolIndex> indexes = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+
+    private BufferedWriter symbolsWriter;
+
+    // Records below this position are complete and visible to readers
+    private volatile long committed;
+
+    private Counter appended;
+
+    public TickJournal(MeterRegistry meterRegistry,
+                       @Value("${stocktracker.journal.enabled:false}") boolean enabled,
+                       @Value("${stocktracker.journal.directory:journal}") String directory,
+                       @Value("${stocktracker.journal.segment-size-mb:64}") int segmentSizeMb,
+                       @Value("${stocktracker.journal.max-segments:16}") int maxSegments,
+                       @Value("${stocktracker.journal.index-interval-ms:1000}") long indexIntervalMs) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.recordsPerSegment = segmentSizeMb * 1024L * 1024L / RECORD_SIZE;
+        this.maxSegments = maxSegments;
+        this.indexIntervalMs = indexIntervalMs;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        loadSymbols();
+        recover();
+        symbolsWriter = Files.newBufferedWriter(directory.resolve(SYMBOLS_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        appended = Counter.builder("stocktracker.journal.ticks").register(meterRegistry);
+        Gauge.builder("stocktracker.journal.segments", segments, Map::size).register(meterRegistry);
+        log.info("Tick journal at [{}] opened with {} record(s) in {} segment(s)", directory.toAbsolutePath(), committed - firstPosition(), segments.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        for (MappedByteBuffer segment : segments.values()) {
+            segment.force();
+        }
+        symbolsWriter.close();
+    }
+
+    /**
+     * Appends one trade; called from the journal stage thread only.
+     */
+    public void append(String symbol, double price, double volume, long timestamp) {
+        int symbolId = symbolIdOf(symbol);
+        long position = committed;
+        MappedByteBuffer segment = segmentFor(position);
+        int offset = (int) (position % recordsPerSegment) * RECORD_SIZE;
+
+        segment.putInt(offset, symbolId);
+        segment.putLong(offset + 8, timestamp);
+        segment.putDouble(offset + 16, price);
+        segment.putDouble(offset + 24, volume);
+        index(symbolId, timestamp, position);
+        committed = position + 1;
+        appended.increment();
+    }
+
+    /**
+     * Visits the ticks of a symbol with a timestamp in [from, to], in journal (arrival) order.
+     */
+    public void replay(String symbol, long from, long to, TickVisitor visitor) {
+        Integer symbolId = symbolIds.get(symbol);
+        SymbolIndex index = symbolId == null ? null : indexes.get(symbolId);
+        if (index == null) {
+            return;
+        }
+
+        long end = committed;
+        long[] range = index.range(from, to, indexIntervalMs, end);
+        long position = Math.max(range[0], firstPosition());
+        while (position < range[1]) {
+            MappedByteBuffer segment = segments.get(position / recordsPerSegment);
+            if (segment == null) {
+                // Removed by retention while replaying
+                position = (position / recordsPerSegment + 1) * recordsPerSegment;
+                continue;
+            }
+            long segmentEnd = Math.min(range[1], (position / recordsPerSegment + 1) * recordsPerSegment);
+            for (; position < segmentEnd; position++) {
+                int offset = (int) (position % recordsPerSegment) * RECORD_SIZE;
+                if (segment.getInt(offset) != symbolId) {
+                    continue;
+                }
+                long timestamp = segment.getLong(offset + 8);
+                if (timestamp >= from && timestamp <= to
+                        && !visitor.visit(symbolId, timestamp, segment.getDouble(offset + 16), segment.getDouble(offset + 24))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public List<Tick> ticks(String symbol, long from, long to, int limit) {
+        List<Tick> ticks = new ArrayList<>();
+        replay(symbol, from, to, (symbolId, timestamp, price, volume) -> {
+            ticks.add(new Tick(symbol, price, volume, timestamp));
+            return ticks.size() < limit;
+        });
+        return ticks;
+    }
+
+    public boolean contains(String symbol) {
+        return symbolIds.containsKey(symbol);
+    }
+
+    int indexSize(String symbol) {
+        Integer symbolId = symbolIds.get(symbol);
+        SymbolIndex index = symbolId == null ? null : indexes.get(symbolId);
+        return index == null ? 0 : index.size();
+    }
+
+    private int symbolIdOf(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        if (id != null) {
+            return id;
+        }
+
+        int newId = symbolNames.size();
+        try {
+            // Written before any record refers to the id, so a crash never leaves records of an unknown symbol
+            symbolsWriter.write(newId + " " + symbol);
+            symbolsWriter.newLine();
+            symbolsWriter.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to record symbol " + symbol + " in the tick journal", e);
+        }
+        symbolNames.add(symbol);
+        symbolIds.put(symbol, newId);
+        return newId;
+    }
+
+    private MappedByteBuffer segmentFor(long position) {
+        long segmentNumber = position / recordsPerSegment;
+        MappedByteBuffer segment = segments.get(segmentNumber);
+        if (segment != null) {
+            return segment;
+        }
+
+        segment = map(segmentPath(segmentNumber));
+        segments.put(segmentNumber, segment);
+        if (segments.size() > maxSegments) {
+            while (segments.size() > maxSegments) {
+                Map.Entry<Long, MappedByteBuffer> oldest = segments.pollFirstEntry();
+                try {
+                    // Readers still holding the mapping keep working, it is unmapped once unreachable
+                    Files.deleteIfExists(segmentPath(oldest.getKey()));
+                } catch (IOException e) {
+                    log.warn("Failed to delete tick journal segment {}: {}", oldest.getKey(), e.getMessage());
+                }
+            }
+            long first = firstPosition();
+            indexes.values().forEach(index -> index.pruneBefore(first));
+        }
+        return segment;
+    }
+
+    private MappedByteBuffer map(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, recordsPerSegment * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map tick journal segment " + path, e);
+        }
+    }
+
+    private Path segmentPath(long segmentNumber) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%012d", segmentNumber) + SEGMENT_SUFFIX);
+    }
+
+    private long firstPosition() {
+        Long first = segments.isEmpty() ? null : segments.firstKey();
+        return first == null ? committed : first * recordsPerSegment;
+    }
+
+    private void index(int symbolId, long timestamp, long position) {
+        indexes.computeIfAbsent(symbolId, id -> new SymbolIndex()).add(timestamp, position, indexIntervalMs);
+    }
+
+    private void loadSymbols() throws IOException {
+        Path file = directory.resolve(SYMBOLS_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            int separator = line.indexOf(' ');
+            if (separator > 0) {
+                String symbol = line.substring(separator + 1);
+                symbolIds.put(symbol, symbolNames.size());
+                symbolNames.add(symbol);
+            }
+        }
+    }
+
+    /**
+     * Maps the existing segments and rebuilds the index; the end of the journal is the first empty record
+     * (timestamps are never 0).
+     */
+    private void recover() throws IOException {
+        List<Long> numbers;
+        try (Stream<Path> files = Files.list(directory)) {
+            numbers = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        if (numbers.isEmpty()) {
+            return;
+        }
+
+        for (long number : numbers) {
+            MappedByteBuffer segment = map(segmentPath(number));
+            segments.put(number, segment);
+            long position = number * recordsPerSegment;
+            for (int record = 0; record < recordsPerSegment; record++, position++) {
+                int offset = record * RECORD_SIZE;
+                long timestamp = segment.getLong(offset + 8);
+                if (timestamp == 0) {
+                    break;
+                }
+                index(segment.getInt(offset), timestamp, position);
+            }
+            committed = position;
+        }
+    }
+
+    /**
+     * Sparse time index of one symbol: the journal position of its first trade and then of its first trade after every
+     * index interval. Appended by the writer, searched by readers.
+     */
+    private static final class SymbolIndex {
+        private long[] timestamps = new long[16];
+
+        private long[] positions = new long[16];
+
+        private int size;
+
+        private synchronized void add(long timestamp, long position, long intervalMs) {
+            if (size > 0 && timestamp < timestamps[size - 1] + intervalMs) {
+                return;
+            }
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            timestamps[size] = timestamp;
+            positions[size] = position;
+            size++;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        /**
+         * Drops the entries of dropped segments, keeping the last one before {@code position} so a range can still
+         * start ahead of the first entry that is left.
+         */
+        private synchronized void pruneBefore(long position) {
+            int dropped = 0;
+            while (dropped + 1 < size && positions[dropped + 1] <= position) {
+                dropped++;
+            }
+            if (dropped == 0) {
+                return;
+            }
+            size -= dropped;
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(size, 1)) * 2);
+            long[] keptTimestamps = capacity < timestamps.length ? new long[capacity] : timestamps;
+            long[] keptPositions = capacity < positions.length ? new long[capacity] : positions;
+            System.arraycopy(timestamps, dropped, keptTimestamps, 0, size);
+            System.arraycopy(positions, dropped, keptPositions, 0, size);
+            timestamps = keptTimestamps;
+            positions = keptPositions;
+        }
+
+        /**
+         * Journal positions [start, end) that hold every trade in [from, to]. One extra interval is scanned on both
+         * sides, since trades do not always arrive in timestamp order.
+         */
+        private synchronized long[] range(long from, long to, long intervalMs, long committed) {
+            int startEntry = Math.max(0, lastEntryAtOrBefore(from - intervalMs));
+            int endEntry = lastEntryAtOrBefore(to > Long.MAX_VALUE - intervalMs ? Long.MAX_VALUE : to + intervalMs) + 1;
+            // The newest entry may point at a record still being written
+            long end = endEntry < size ? Math.min(positions[endEntry], committed) : committed;
+            return new long[]{positions[startEntry], end};
+        }
+
+        private int lastEntryAtOrBefore(long timestamp) {
+            int index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+            return index >= 0 ? index : -index - 2;
+        }
+    }
+}
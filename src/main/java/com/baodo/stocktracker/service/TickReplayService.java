@@ -0,0 +1,69 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.BarSeries;
+import com.baodo.stocktracker.model.SymbolMarketState;
+import com.baodo.stocktracker.model.Tick;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Historical ticks and bars rebuilt from the {@link TickJournal}, shared by the REST and STOMP replay APIs.
+ */
+@Service
+@AllArgsConstructor
+public class TickReplayService {
+    public static final int MAX_TICKS = 10000;
+
+    public static final int MAX_BARS = 5000;
+
+    private final TickJournal tickJournal;
+
+    public List<Tick> ticks(String symbol, long from, long to, int limit) {
+        validate(symbol, from, to);
+        if (limit < 1 || limit > MAX_TICKS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_TICKS);
+        }
+        return tickJournal.ticks(symbol, from, to, limit);
+    }
+
+    /**
+     * Bars of {@code resolution} covering [from, to], oldest first; intervals without trades are left out.
+     */
+    public List<BarSeries.Bar> bars(String symbol, SymbolMarketState.Resolution resolution, long from, long to) {
+        validate(symbol, from, to);
+        long intervalMs = resolution.getIntervalMs();
+        long count = (to - Math.floorMod(to, intervalMs) - (from - Math.floorMod(from, intervalMs))) / intervalMs + 1;
+        if (count > MAX_BARS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Range covers more than " + MAX_BARS + " " + resolution.getLabel() + " bars");
+        }
+
+        BarSeries series = new BarSeries(intervalMs, (int) count);
+        tickJournal.replay(symbol, from, to, (symbolId, timestamp, price, volume) -> {
+            series.add(price, volume, timestamp);
+            return true;
+        });
+
+        List<BarSeries.Bar> bars = new ArrayList<>(series.size());
+        for (int age = series.size() - 1; age >= 0; age--) {
+            bars.add(series.get(age));
+        }
+        return bars;
+    }
+
+    private void validate(String symbol, long from, long to) {
+        if (!tickJournal.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The tick journal is disabled");
+        }
+        if (from <= 0 || to < from) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be positive and not after to");
+        }
+        if (!tickJournal.contains(symbol)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No journaled ticks for symbol " + symbol);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.SymbolTradeUpdate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Folds a batch of trades into one update per symbol, for consumers that only need the latest price of a batch.
+ * Not thread-safe: each trade pipeline stage owns its instance.
+ */
+public class TradeBatchAggregator {
+    private final Map<String, SymbolTradeUpdate> updates = new LinkedHashMap<>();
+
+    public void add(String symbol, double price, double volume, long timestamp) {
+        updates.computeIfAbsent(symbol, SymbolTradeUpdate::new).addTrade(price, volume, timestamp);
+    }
+
+    public Collection<SymbolTradeUpdate> updates() {
+        return updates.values();
+    }
+
+    public void clear() {
+        updates.clear();
+    }
+}
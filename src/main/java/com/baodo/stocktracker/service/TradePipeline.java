@@ -0,0 +1,122 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.SymbolTradeUpdate;
+import com.baodo.stocktracker.model.TradeEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Hands decoded trades from the Finnhub readers to the downstream stages through a {@link TradeRingBuffer}, so a slow
+ * stage (Redis, the broker) can never back up the upstream socket. Stages:
+ * <ul>
+ *     <li>market-state: every trade into bars, VWAP and day stats</li>
+ *     <li>cache: the latest trade per symbol of each batch into the quote cache</li>
+ *     <li>broadcast: the latest price per symbol of each batch to the conflating broadcaster</li>
+ *     <li>journal: every trade into the {@link TickJournal}, when it is enabled</li>
+ * </ul>
+ * Trades of symbols no longer subscribed upstream (still in the ring or in flight from Finnhub after an unsubscribe) are
+ * dropped by every stage but the journal, and no stage creates per-symbol state for them, so teardown stays final.
+ * The tick path is measured with pre-registered meters only ({@code stocktracker.trades.latency} from frame read to
+ * broadcast), never with spans.
+ */
+@Service
+public class TradePipeline {
+    private final TradeRingBuffer ringBuffer;
+
+    public TradePipeline(MeterRegistry meterRegistry,
+                         MarketStateService marketStateService,
+                         QuoteCacheService quoteCacheService,
+                         PriceBroadcaster priceBroadcaster,
+                         FinnhubConnectionManager connectionManager,
+                         LatencyMonitor latencyMonitor,
+                         TickJournal tickJournal,
+                         @Value("${stocktracker.trades.ring.capacity:65536}") int capacity,
+                         @Value("${stocktracker.trades.stage.market-state.wait-strategy:SLEEPING}") TradeRingBuffer.WaitStrategy marketStateWait,
+                         @Value("${stocktracker.trades.stage.cache.wait-strategy:SLEEPING}") TradeRingBuffer.WaitStrategy cacheWait,
+                         @Value("${stocktracker.trades.stage.broadcast.wait-strategy:SLEEPING}") TradeRingBuffer.WaitStrategy broadcastWait,
+                         @Value("${stocktracker.trades.stage.journal.wait-strategy:SLEEPING}") TradeRingBuffer.WaitStrategy journalWait) {
+        this.ringBuffer = new TradeRingBuffer(capacity, meterRegistry);
+        Predicate<String> live = connectionManager::isSubscribed;
+
+        ringBuffer.addConsumer("market-state", (event, sequence, endOfBatch) -> {
+            if (live.test(event.getSymbol())) {
+                marketStateService.onTrade(event.getSymbol(), event.getPrice(), event.getVolume(), event.getTimestamp(), live);
+            }
+        }, marketStateWait);
+
+        TradeBatchAggregator cacheBatch = new TradeBatchAggregator();
+        long[] oldestReceivedAt = {Long.MAX_VALUE};
+        ringBuffer.addConsumer("cache", (event, sequence, endOfBatch) -> {
+            if (live.test(event.getSymbol())) {
+                aggregate(cacheBatch, event);
+                oldestReceivedAt[0] = Math.min(oldestReceivedAt[0], event.getReceivedAt());
+            }
+            if (endOfBatch) {
+                for (SymbolTradeUpdate update : cacheBatch.updates()) {
+                    quoteCacheService.putTrade(update.getSymbol(), update.getLastPrice(), update.getVolume(), update.getTimestamp(), live);
+                }
+                cacheBatch.clear();
+                if (oldestReceivedAt[0] != Long.MAX_VALUE) {
+                    latencyMonitor.record(LatencyMonitor.Stage.RECEIVE_CACHE, System.currentTimeMillis() - oldestReceivedAt[0]);
+                }
+                oldestReceivedAt[0] = Long.MAX_VALUE;
+            }
+        }, cacheWait);
+
+        Timer latency = Timer.builder("stocktracker.trades.latency").register(meterRegistry);
+        TradeBatchAggregator broadcastBatch = new TradeBatchAggregator();
+        long[] receivedAt = new long[1];
+        ringBuffer.addConsumer("broadcast", (event, sequence, endOfBatch) -> {
+            if (live.test(event.getSymbol())) {
+                aggregate(broadcastBatch, event);
+                receivedAt[0] = Math.max(receivedAt[0], event.getReceivedAt());
+                latencyMonitor.record(LatencyMonitor.Stage.EXCHANGE_RECEIVE, event.getReceivedAt() - event.getTimestamp());
+                latencyMonitor.recordTrade(event.getSymbol(), live);
+            }
+            if (endOfBatch) {
+                for (SymbolTradeUpdate update : broadcastBatch.updates()) {
+                    priceBroadcaster.publish(update.getSymbol(), update.getLastPrice(), receivedAt[0], live);
+                    connectionManager.recordTrade(update.getSymbol(), receivedAt[0]);
+                }
+                broadcastBatch.clear();
+                if (receivedAt[0] > 0) {
+                    latency.record(System.currentTimeMillis() - receivedAt[0], TimeUnit.MILLISECONDS);
+                }
+                receivedAt[0] = 0;
+            }
+        }, broadcastWait);
+
+        if (tickJournal.isEnabled()) {
+            ringBuffer.addConsumer("journal", (event, sequence, endOfBatch) ->
+                    tickJournal.append(event.getSymbol(), event.getPrice(), event.getVolume(), event.getTimestamp()), journalWait);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        ringBuffer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        ringBuffer.stop();
+    }
+
+    /**
+     * Called by the upstream reader for every decoded trade; waits only if the slowest stage is a full ring behind.
+     */
+    public void publish(String symbol, double price, double volume, long timestamp, long receivedAt) {
+        ringBuffer.publish(symbol, price, volume, timestamp, receivedAt);
+    }
+
+    private static void aggregate(TradeBatchAggregator batch, TradeEvent event) {
+        batch.add(event.getSymbol(), event.getPrice(), event.getVolume(), event.getTimestamp());
+    }
+}
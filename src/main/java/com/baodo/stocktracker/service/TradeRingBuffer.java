@@ -0,0 +1,218 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.TradeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded ring of preallocated {@link TradeEvent}s between the Finnhub readers and the downstream stages, in the style
+ * of a disruptor. Each consumer runs on its own thread, sees every event in order and hands its handler whole batches
+ * (everything published since its last pass). The producer never overwrites an event a consumer has not seen yet:
+ * a full ring makes it wait for the slowest consumer, which is counted in {@code stocktracker.trades.ring.full}.
+ * Producers are serialised by the ring's monitor, which is uncontended with a single upstream connection.
+ */
+@Slf4j
+public class TradeRingBuffer {
+    public enum WaitStrategy {
+        // Lowest latency, burns a core per consumer
+        BUSY_SPIN,
+        // Spins briefly, then yields the core to other threads
+        YIELDING,
+        // Spins, yields, then parks for 100 µs; near-zero CPU when the feed is quiet
+        SLEEPING;
+
+        private static final int SPIN_TRIES = 100;
+
+        private static final int YIELD_TRIES = 200;
+
+        void idle(int attempt) {
+            if (this == BUSY_SPIN || attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (this == YIELDING || attempt < YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface EventHandler {
+        /**
+         * @param endOfBatch true for the last event currently available, where batching consumers should flush
+         */
+        void onEvent(TradeEvent event, long sequence, boolean endOfBatch);
+    }
+
+    private final TradeEvent[] entries;
+
+    private final int mask;
+
+    private final MeterRegistry meterRegistry;
+
+    // Sequence of the last published event, -1 while empty
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    private final Counter published;
+
+    private final Counter full;
+
+    // Slowest consumer as last seen by the producer, so it only rescans the stages when the ring looks full
+    private long cachedGatingSequence = -1;
+
+    private volatile boolean running;
+
+    public TradeRingBuffer(int capacity, MeterRegistry meterRegistry) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two, was " + capacity);
+        }
+        this.entries = new TradeEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new TradeEvent();
+        }
+        this.mask = capacity - 1;
+        this.meterRegistry = meterRegistry;
+
+        this.published = Counter.builder("stocktracker.trades.ring.published").register(meterRegistry);
+        this.full = Counter.builder("stocktracker.trades.ring.full").register(meterRegistry);
+        Gauge.builder("stocktracker.trades.ring.capacity", entries, array -> array.length).register(meterRegistry);
+        Gauge.builder("stocktracker.trades.ring.occupancy", this, ring -> ring.occupancy()).register(meterRegistry);
+    }
+
+    /**
+     * Registers a consumer stage; all stages must be added before {@link #start()}.
+     */
+    public void addConsumer(String name, EventHandler handler, WaitStrategy waitStrategy) {
+        if (running) {
+            throw new IllegalStateException("Consumers must be added before the ring is started");
+        }
+        Stage stage = new Stage(name, handler, waitStrategy);
+        stages.add(stage);
+        Gauge.builder("stocktracker.trades.ring.lag", stage, s -> cursor.get() - s.sequence.get())
+                .tag("stage", name)
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        running = true;
+        for (Stage stage : stages) {
+            stage.thread.start();
+        }
+        log.info("Trade ring buffer started with {} slots and stages {}", entries.length, stages.stream().map(stage -> stage.name).toList());
+    }
+
+    public void stop() {
+        running = false;
+        for (Stage stage : stages) {
+            stage.thread.interrupt();
+        }
+    }
+
+    public synchronized void publish(String symbol, double price, double volume, long timestamp, long receivedAt) {
+        long next = cursor.get() + 1;
+        long wrapPoint = next - entries.length;
+        if (wrapPoint > cachedGatingSequence) {
+            cachedGatingSequence = awaitCapacity(wrapPoint);
+            if (wrapPoint > cachedGatingSequence) {
+                // Stopped while waiting
+                return;
+            }
+        }
+
+        TradeEvent event = entries[(int) (next & mask)];
+        event.setSymbol(symbol);
+        event.setPrice(price);
+        event.setVolume(volume);
+        event.setTimestamp(timestamp);
+        event.setReceivedAt(receivedAt);
+        cursor.setRelease(next);
+        published.increment();
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Events published but not yet seen by the slowest consumer.
+     */
+    public long occupancy() {
+        return cursor.get() - minimumSequence(cursor.get());
+    }
+
+    private long awaitCapacity(long wrapPoint) {
+        long gating = minimumSequence(cursor.get());
+        if (wrapPoint <= gating) {
+            return gating;
+        }
+
+        full.increment();
+        int attempt = 0;
+        while (running && wrapPoint > (gating = minimumSequence(cursor.get()))) {
+            WaitStrategy.YIELDING.idle(attempt++);
+        }
+        return gating;
+    }
+
+    private long minimumSequence(long minimum) {
+        for (Stage stage : stages) {
+            minimum = Math.min(minimum, stage.sequence.get());
+        }
+        return minimum;
+    }
+
+    private final class Stage implements Runnable {
+        private final String name;
+
+        private final EventHandler handler;
+
+        private final WaitStrategy waitStrategy;
+
+        // Sequence of the last event this stage has finished with
+        private final AtomicLong sequence = new AtomicLong(-1);
+
+        private final Thread thread;
+
+        private Stage(String name, EventHandler handler, WaitStrategy waitStrategy) {
+            this.name = name;
+            this.handler = handler;
+            this.waitStrategy = waitStrategy;
+            this.thread = new Thread(this, "trade-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int attempt = 0;
+            while (running) {
+                long available = cursor.get();
+                if (available < next) {
+                    waitStrategy.idle(attempt++);
+                    continue;
+                }
+
+                attempt = 0;
+                for (long current = next; current <= available; current++) {
+                    try {
+                        handler.onEvent(entries[(int) (current & mask)], current, current == available);
+                    } catch (Exception e) {
+                        log.error("Trade stage [{}] failed on event {}: {}", name, current, e.getMessage(), e);
+                    }
+                }
+                sequence.setRelease(available);
+                next = available + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.SymbolPriceUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessions that track a watchlist rather than a single symbol. After every {@link PriceBroadcaster} flush, the changed
+ * symbols of each such session go out as one frame on /topic/watchlist/updates/{sessionId}, so a screen of 50 tickers
+ * costs one frame per flush instead of 50.
+ */
+@Service
+public class WatchlistService {
+    public static final String SNAPSHOT_DESTINATION_PREFIX = "/topic/watchlist/snapshot/";
+
+    public static final String UPDATES_DESTINATION_PREFIX = "/topic/watchlist/updates/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final PriceBroadcaster priceBroadcaster;
+
+    private final SubscriptionRegistry subscriptionRegistry;
+
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+
+    @Getter
+    private final int maxSymbols;
+
+    @Getter
+    private final int fetchConcurrency;
+
+    private final Counter frames;
+
+    public WatchlistService(SimpMessagingTemplate messagingTemplate, PriceBroadcaster priceBroadcaster,
+                            SubscriptionRegistry subscriptionRegistry, MeterRegistry meterRegistry,
+                            @Value("${stocktracker.watchlist.max-symbols:100}") int maxSymbols,
+                            @Value("${stocktracker.watchlist.fetch-concurrency:8}") int fetchConcurrency) {
+        this.messagingTemplate = messagingTemplate;
+        this.priceBroadcaster = priceBroadcaster;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.maxSymbols = maxSymbols;
+        this.fetchConcurrency = fetchConcurrency;
+
+        this.frames = Counter.builder("stocktracker.watchlist.frames").register(meterRegistry);
+        Gauge.builder("stocktracker.watchlist.sessions", sessions, Set::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        priceBroadcaster.addFlushListener(this::onFlush);
+    }
+
+    public void addSession(String sessionId) {
+        sessions.add(sessionId);
+    }
+
+    /**
+     * @return true if the session was tracking a watchlist
+     */
+    public boolean removeSession(String sessionId) {
+        return sessions.remove(sessionId);
+    }
+
+    void onFlush(Map<String, Double> prices) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        // Walk each watchlist session's own symbols, so single-symbol viewers of a hot symbol cost nothing here
+        Map<String, SymbolPriceUpdate> updates = new HashMap<>();
+        Map<String, List<SymbolPriceUpdate>> batches = new HashMap<>();
+        for (String sessionId : sessions) {
+            List<SymbolPriceUpdate> batch = null;
+            for (String symbol : subscriptionRegistry.symbolsOf(sessionId)) {
+                Double price = prices.get(symbol);
+                if (price == null) {
+                    continue;
+                }
+                if (batch == null) {
+                    batch = batches.computeIfAbsent(sessionId, key -> new ArrayList<>());
+                }
+                batch.add(updates.computeIfAbsent(symbol, key -> new SymbolPriceUpdate(key, priceBroadcaster.sequenceOf(key), price)));
+            }
+        }
+
+        batches.forEach((sessionId, batch) -> messagingTemplate.convertAndSend(UPDATES_DESTINATION_PREFIX + sessionId, batch));
+        frames.increment(batches.size());
+    }
+}
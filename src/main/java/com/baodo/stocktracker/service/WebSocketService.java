@@ -1,6 +1,9 @@
 package com.baodo.stocktracker.service;
 
-import com.baodo.stocktracker.dto.response.SymbolQuoteResponse;
+import com.baodo.stocktracker.model.CachedQuote;
+import com.baodo.stocktracker.model.SymbolMarketState;
+import com.baodo.stocktracker.model.SymbolSnapshot;
+import com.baodo.stocktracker.model.WatchlistSnapshot;
 import io.micrometer.tracing.Tracer;
 import io.micrometer.tracing.Span;
 import lombok.AllArgsConstructor;
@@ -13,115 +16,363 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 @AllArgsConstructor
 public class WebSocketService {
+    public static final String SNAPSHOT_DESTINATION_PREFIX = "/topic/snapshot/";
+
     private final SimpMessagingTemplate messagingTemplate;
 
-    private final RedisService redisService;
+    private final QuoteCacheService quoteCacheService;
+
+    private final ClusterCoordinator clusterCoordinator;
+
+    private final QuoteLookupService quoteLookupService;
+
+    private final PriceBroadcaster priceBroadcaster;
+
+    private final SubscriptionRegistry subscriptionRegistry;
+
+    private final SymbolLingerService symbolLingerService;
+
+    private final MarketStateService marketStateService;
+
+    private final WatchlistService watchlistService;
 
-    private final FinnhubService finnhubService;
+    private final Map<String, CompletableFuture<Void>> sessionPipelines = new ConcurrentHashMap<>();
 
-    private final Map<String, Set<String>> symbolViewers = new HashMap<>();
+    // Serialises the upstream transitions of a symbol; registry and linger callbacks run outside their map locks
+    private final Object[] symbolLocks = newSymbolLocks(64);
 
     private Tracer tracer;
 
-    public void handleTrackingSymbol(String sessionId, String currentSymbol, String newSymbol) {
-        Span parentSpan = tracer.nextSpan().name("WebSocketService - handleTrackingSymbol: Starting Point");
-        try (Tracer.SpanInScope scope = tracer.withSpan(parentSpan.start())) {
-            log.info("Session [{}] requests to switch from [{}] to [{}]", sessionId, currentSymbol, newSymbol);
+    public CompletableFuture<Void> handleTrackingSymbol(String sessionId, String currentSymbol, String newSymbol) {
+        Span parentSpan = tracer.nextSpan().name("WebSocketService - handleTrackingSymbol: Starting Point").start();
+        log.info("Session [{}] requests to switch from [{}] to [{}]", sessionId, currentSymbol, newSymbol);
 
-            // Step 1: Unsubscribe current symbol
-            if (symbolViewers.containsKey(currentSymbol)) {
-                log.info("Unsubscribing session [{}] from symbol [{}]", sessionId, currentSymbol);
-                unsubscribeViewerFromSymbol(currentSymbol, sessionId);
-            }
+        return runInSessionOrder(sessionId, () -> trackSymbol(parentSpan, sessionId, currentSymbol, newSymbol))
+                .whenComplete((ignored, ex) -> parentSpan.end());
+    }
+
+    private Mono<Void> trackSymbol(Span parentSpan, String sessionId, String currentSymbol, String newSymbol) {
+        return Mono.fromCallable(() -> {
+                    // Step 1: Unsubscribe current symbol, or every symbol of a watchlist the session is leaving
+                    if (watchlistService.removeSession(sessionId)) {
+                        log.info("Session [{}] leaves its watchlist for symbol [{}]", sessionId, newSymbol);
+                        for (String symbol : List.copyOf(subscriptionRegistry.symbolsOf(sessionId))) {
+                            if (!symbol.equals(newSymbol)) {
+                                unsubscribeViewerFromSymbol(parentSpan, symbol, sessionId);
+                            }
+                        }
+                    } else if (currentSymbol != null && subscriptionRegistry.symbolsOf(sessionId).contains(currentSymbol)) {
+                        log.info("Unsubscribing session [{}] from symbol [{}]", sessionId, currentSymbol);
+                        unsubscribeViewerFromSymbol(parentSpan, currentSymbol, sessionId);
+                    }
+
+                    // Step 2: Symbols that are already live are served from memory, others from cache
+                    SymbolSnapshot live = buildSnapshot(newSymbol, null);
+                    if (live != null) {
+                        return live;
+                    }
+                    CachedQuote cached = quoteCacheService.get(newSymbol);
+                    return cached == null ? null : buildSnapshot(newSymbol, cached);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                // Step 2b: Fetch from Finnhub if needed
+                .switchIfEmpty(Mono.defer(() -> fetchQuote(newSymbol).map(quote -> buildSnapshot(newSymbol, quote))))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(snapshot -> {
+                    // Step 3: Send the snapshot to the subscribing session
+                    Span broadcastSpan = tracer.nextSpan(parentSpan).name("WebSocketService - handleTrackingSymbol: Sending Snapshot to Client");
+                    try (Tracer.SpanInScope s = tracer.withSpan(broadcastSpan.start())) {
+                        messagingTemplate.convertAndSend(SNAPSHOT_DESTINATION_PREFIX + sessionId, snapshot);
+                        log.info("Sent snapshot of symbol [{}] at seq {} to session [{}]", newSymbol, snapshot.seq(), sessionId);
+                    } finally {
+                        broadcastSpan.end();
+                    }
+
+                    // Step 4: Update viewer tracking, subscribing to Finnhub for the first viewer
+                    Span updateSpan = tracer.nextSpan(parentSpan).name("WebSocketService - handleTrackingSymbol: Update Viewer for Symbol");
+                    try (Tracer.SpanInScope s = tracer.withSpan(updateSpan.start())) {
+                        subscriptionRegistry.addViewer(newSymbol, sessionId, this::subscribeUpstream);
+                        log.debug("Symbol [{}] now has {} viewer(s)", newSymbol, subscriptionRegistry.viewerCount(newSymbol));
+                    } finally {
+                        updateSpan.end();
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * Replaces the session's full symbol set with a watchlist: symbols no longer listed are released, live and cached
+     * symbols are served from memory, and the rest are fetched in one concurrent batch. The session then gets one
+     * aggregated snapshot followed by combined updates from {@link WatchlistService}.
+     */
+    public CompletableFuture<Void> handleWatchlist(String sessionId, List<String> symbols) {
+        return handleWatchlist(sessionId, symbols, snapshot -> {
+            messagingTemplate.convertAndSend(WatchlistService.SNAPSHOT_DESTINATION_PREFIX + sessionId, snapshot);
+            watchlistService.addSession(sessionId);
+        });
+    }
 
-            // Step 2: Check cache, fetch from Finnhub if needed
-            if (!redisService.exists(newSymbol)) {
-                log.info("Symbol [{}] not found in cache. Fetching from data Finnhub", newSymbol);
+    /**
+     * Same as {@link #handleWatchlist(String, List)} for sessions outside the STOMP broker (e.g. the binary feed):
+     * {@code delivery} sends the snapshot and switches the session to updates, before viewers are added.
+     */
+    public CompletableFuture<Void> handleWatchlist(String sessionId, List<String> symbols, Consumer<WatchlistSnapshot> delivery) {
+        Span parentSpan = tracer.nextSpan().name("WebSocketService - handleWatchlist: Starting Point").start();
+        log.info("Session [{}] sets a watchlist of {} symbol(s)", sessionId, symbols == null ? 0 : symbols.size());
+
+        return runInSessionOrder(sessionId, () -> trackWatchlist(parentSpan, sessionId, symbols, delivery))
+                .whenComplete((ignored, ex) -> parentSpan.end());
+    }
 
-                SymbolQuoteResponse quote = finnhubService.getQuote(newSymbol).block();
-                if (quote == null || (quote.getC() == 0.0 && quote.getT() == 0)) {
-                    log.info("Symbol [{}] is invalid or has no trade data", newSymbol);
-                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Symbol [" + newSymbol + "] not found");
+    private Mono<Void> trackWatchlist(Span parentSpan, String sessionId, List<String> symbols, Consumer<WatchlistSnapshot> delivery) {
+        Set<String> watchlist = new LinkedHashSet<>();
+        if (symbols != null) {
+            for (String symbol : symbols) {
+                if (symbol != null && !symbol.isBlank()) {
+                    watchlist.add(symbol.trim());
                 }
-                redisService.save(newSymbol, quote.getC());
             }
+        }
+        if (watchlist.size() > watchlistService.getMaxSymbols()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A watchlist holds at most " + watchlistService.getMaxSymbols() + " symbols"));
+        }
 
-            // Step 3: Broadcast to client
-            Span broadcastSpan = tracer.nextSpan(parentSpan).name("WebSocketService - handleTrackingSymbol: Broadcasting Symbol to Client");
-            try (Tracer.SpanInScope s = tracer.withSpan(broadcastSpan.start())) {
-                messagingTemplate.convertAndSend("/topic/price" + newSymbol, redisService.get(newSymbol, Double.class));
-                log.info("Broadcasted price for symbol [{}] to session [{}]", newSymbol, sessionId);
-            } finally {
-                broadcastSpan.end();
-            }
+        Map<String, SymbolSnapshot> snapshots = new ConcurrentHashMap<>();
+        return Mono.fromCallable(() -> {
+                    // Step 1: Unsubscribe the symbols that are no longer on the watchlist
+                    for (String symbol : List.copyOf(subscriptionRegistry.symbolsOf(sessionId))) {
+                        if (!watchlist.contains(symbol)) {
+                            unsubscribeViewerFromSymbol(parentSpan, symbol, sessionId);
+                        }
+                    }
 
-            // Step 4: Update viewer tracking
-            Span updateSpan = tracer.nextSpan(parentSpan).name("WebSocketService - handleTrackingSymbol: Update Viewer for Symbol");
-            try (Tracer.SpanInScope s = tracer.withSpan(updateSpan.start())) {
-                symbolViewers.computeIfAbsent(newSymbol, k -> new HashSet<>()).add(sessionId);
-                log.debug("Updated symbolViewers: {}", symbolViewers);
-            } finally {
-                updateSpan.end();
-            }
+                    // Step 2: Serve live symbols from memory and the rest from cache in one batch, collect what is left
+                    List<String> notLive = new ArrayList<>();
+                    for (String symbol : watchlist) {
+                        SymbolSnapshot snapshot = buildSnapshot(symbol, null);
+                        if (snapshot != null) {
+                            snapshots.put(symbol, snapshot);
+                        } else {
+                            notLive.add(symbol);
+                        }
+                    }
+                    Map<String, CachedQuote> cached = notLive.isEmpty() ? Map.of() : quoteCacheService.getAll(notLive);
+                    List<String> missing = new ArrayList<>();
+                    for (String symbol : notLive) {
+                        CachedQuote quote = cached.get(symbol);
+                        if (quote != null) {
+                            snapshots.put(symbol, buildSnapshot(symbol, quote));
+                        } else {
+                            missing.add(symbol);
+                        }
+                    }
+                    return missing;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                // Step 2b: Fetch every missing symbol in one concurrent batch; failed symbols are reported as unavailable
+                .flatMap(missing -> Flux.fromIterable(missing)
+                        .flatMap(symbol -> fetchQuote(symbol)
+                                .doOnNext(quote -> snapshots.put(symbol, buildSnapshot(symbol, quote)))
+                                .onErrorResume(ex -> {
+                                    log.info("Watchlist symbol [{}] of session [{}] is unavailable: {}", symbol, sessionId, ex.getMessage());
+                                    return Mono.empty();
+                                }), watchlistService.getFetchConcurrency())
+                        .then())
+                .publishOn(Schedulers.boundedElastic())
+                .then(Mono.fromRunnable(() -> {
+                    List<SymbolSnapshot> available = new ArrayList<>(watchlist.size());
+                    List<String> unavailable = new ArrayList<>();
+                    for (String symbol : watchlist) {
+                        SymbolSnapshot snapshot = snapshots.get(symbol);
+                        if (snapshot != null) {
+                            available.add(snapshot);
+                        } else {
+                            unavailable.add(symbol);
+                        }
+                    }
 
-            // Step 5: Subscribe to Finnhub
-            try {
-                finnhubService.subscribeSymbol(newSymbol);
-            } catch (IOException e) {
-                log.error("Error subscribing to symbol [{}] on Finnhub", newSymbol, e);
-            }
+                    // Step 3: Send one aggregated snapshot, then switch the session to combined updates
+                    Span broadcastSpan = tracer.nextSpan(parentSpan).name("WebSocketService - handleWatchlist: Sending Snapshot to Client");
+                    try (Tracer.SpanInScope s = tracer.withSpan(broadcastSpan.start())) {
+                        delivery.accept(new WatchlistSnapshot(available, unavailable));
+                        log.info("Sent watchlist snapshot of {} symbol(s) to session [{}], {} unavailable", available.size(), sessionId, unavailable.size());
+                    } finally {
+                        broadcastSpan.end();
+                    }
 
-        } finally {
-            parentSpan.end();
+                    // Step 4: Update viewer tracking, subscribing to Finnhub for first viewers
+                    Span updateSpan = tracer.nextSpan(parentSpan).name("WebSocketService - handleWatchlist: Update Viewers");
+                    try (Tracer.SpanInScope s = tracer.withSpan(updateSpan.start())) {
+                        for (SymbolSnapshot snapshot : available) {
+                            subscriptionRegistry.addViewer(snapshot.symbol(), sessionId, this::subscribeUpstream);
+                        }
+                    } finally {
+                        updateSpan.end();
+                    }
+                }));
+    }
+
+    private Mono<CachedQuote> fetchQuote(String symbol) {
+        log.info("Symbol [{}] not found in cache. Fetching from data Finnhub", symbol);
+
+        return quoteLookupService.lookup(symbol)
+                .map(quote -> {
+                    CachedQuote cachedQuote = new CachedQuote(quote.getC(), 0.0, quote.getT() * 1000, quote.getH(), quote.getL());
+                    quoteCacheService.put(symbol, cachedQuote);
+                    marketStateService.seedDay(symbol, quote.getO(), quote.getH(), quote.getL(), quote.getT() * 1000);
+                    return cachedQuote;
+                });
+    }
+
+    /**
+     * Re-sends the snapshot of a symbol the session is tracking, for clients that detected a gap in the update sequence.
+     */
+    public CompletableFuture<Void> resync(String sessionId, String symbol) {
+        return runInSessionOrder(sessionId, () -> Mono.fromRunnable(() -> {
+                    if (!subscriptionRegistry.symbolsOf(sessionId).contains(symbol)) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Session is not tracking symbol " + symbol);
+                    }
+                    SymbolSnapshot snapshot = buildSnapshot(symbol, quoteCacheService.get(symbol));
+                    if (snapshot == null) {
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No data for symbol " + symbol);
+                    }
+                    messagingTemplate.convertAndSend(SNAPSHOT_DESTINATION_PREFIX + sessionId, snapshot);
+                    log.info("Resynced symbol [{}] at seq {} for session [{}]", symbol, snapshot.seq(), sessionId);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then());
+    }
+
+    /**
+     * Combines the last sent update, the live market state and (if given) a cached quote; null if none has data.
+     * The sequence is read before the price, so the price is never older than the sequence claims.
+     */
+    private SymbolSnapshot buildSnapshot(String symbol, CachedQuote quote) {
+        long seq = priceBroadcaster.sequenceOf(symbol);
+        Double published = priceBroadcaster.lastPublishedPrice(symbol);
+        SymbolMarketState.Snapshot state = marketStateService.snapshot(symbol);
+        boolean traded = state != null && state.timestamp() > 0;
+        if (published == null && !traded && quote == null) {
+            return null;
         }
+
+        double price = published != null ? published : traded ? state.lastPrice() : quote.getPrice();
+        long timestamp = traded ? state.timestamp() : quote != null ? quote.getTimestamp() : System.currentTimeMillis();
+        double dayHigh = state != null && state.dayHigh() > 0 ? state.dayHigh() : quote != null ? quote.getDayHigh() : price;
+        double dayLow = state != null && state.dayLow() > 0 ? state.dayLow() : quote != null ? quote.getDayLow() : price;
+
+        return new SymbolSnapshot(symbol, seq, price, timestamp, state != null ? state.dayOpen() : 0, dayHigh, dayLow,
+                traded ? state.vwap() : price, state != null ? state.dayVolume() : 0, marketStateService.recentTrades(symbol));
+    }
+
+    /**
+     * Chains work for a session behind its previous request, so rapid symbol switches and a
+     * disconnect are applied in the order the client sent them, without holding an inbound thread.
+     */
+    private CompletableFuture<Void> runInSessionOrder(String sessionId, Supplier<Mono<Void>> step) {
+        CompletableFuture<Void> tail = sessionPipelines.compute(sessionId, (key, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous.exceptionally(ex -> null))
+                        .thenCompose(ignored -> step.get().toFuture()));
+        tail.whenComplete((ignored, ex) -> sessionPipelines.remove(sessionId, tail));
+        return tail;
     }
 
     @EventListener
     public void handleSessionDisconnect(SessionDisconnectEvent event) {
         String sessionId = StompHeaderAccessor.wrap(event.getMessage()).getSessionId();
         log.info("Session [{}] disconnected", sessionId);
+        releaseSession(sessionId);
+    }
 
-        for (String symbol : new HashSet<>(symbolViewers.keySet())) {
-            unsubscribeViewerFromSymbol(symbol, sessionId);
-        }
-
-        log.debug("After disconnect, updated symbolViewers: {}", symbolViewers);
+    /**
+     * Releases every symbol of a closed session, after any of its requests still running.
+     */
+    public CompletableFuture<Void> releaseSession(String sessionId) {
+        return runInSessionOrder(sessionId, () -> Mono.fromRunnable(() -> {
+                    watchlistService.removeSession(sessionId);
+                    Set<String> symbols = subscriptionRegistry.removeSession(sessionId, this::lingerSymbol);
+                    log.debug("After disconnect, session [{}] released symbols: {}", sessionId, symbols);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then());
     }
 
-    private void unsubscribeViewerFromSymbol(String symbol, String sessionId) {
-        Span unsubscribeSpan = tracer.nextSpan().name("WebSocketService - unsubscribeViewerFromSymbol: Unsubscribe Symbol");
+    private void unsubscribeViewerFromSymbol(Span parentSpan, String symbol, String sessionId) {
+        Span unsubscribeSpan = tracer.nextSpan(parentSpan).name("WebSocketService - unsubscribeViewerFromSymbol: Unsubscribe Symbol");
         try (Tracer.SpanInScope s = tracer.withSpan(unsubscribeSpan.start())) {
-            Set<String> viewers = symbolViewers.get(symbol);
-            if (viewers != null) {
-                viewers.remove(sessionId);
-                log.debug("Removed session [{}] from viewers of symbol [{}]", sessionId, symbol);
-
-                if (viewers.isEmpty()) {
-                    symbolViewers.remove(symbol);
-                    redisService.delete(symbol);
-
-                    try {
-                        finnhubService.unsubscribeSymbol(symbol);
-                        log.info("Unsubscribed from symbol [{}] on Finnhub", symbol);
-                    } catch (IOException e) {
-                        log.error("Error unsubscribing from symbol [{}] on Finnhub", symbol, e);
-                    }
-                }
-            }
+            subscriptionRegistry.removeViewer(symbol, sessionId, this::lingerSymbol);
         } finally {
             unsubscribeSpan.end();
         }
     }
 
+    private void subscribeUpstream(String symbol) {
+        synchronized (symbolLock(symbol)) {
+            if (subscriptionRegistry.viewerCount(symbol) == 0) {
+                return;
+            }
+            if (symbolLingerService.reclaim(symbol)) {
+                log.info("Symbol [{}] was still lingering, reusing its Finnhub subscription", symbol);
+                return;
+            }
+            clusterCoordinator.acquireUpstream(symbol);
+        }
+    }
+
+    private void lingerSymbol(String symbol) {
+        // Not under the symbol lock: pushing another symbol out of the linger cap releases it under its own lock
+        if (subscriptionRegistry.viewerCount(symbol) == 0) {
+            symbolLingerService.linger(symbol, this::releaseSymbol);
+        }
+    }
+
+    private void releaseSymbol(String symbol) {
+        synchronized (symbolLock(symbol)) {
+            // A viewer may have come back, or the symbol lingers again, since the teardown was decided
+            if (subscriptionRegistry.viewerCount(symbol) > 0 || symbolLingerService.isLingering(symbol)) {
+                return;
+            }
+            // Release upstream before dropping local state, so late trades can't re-create it
+            clusterCoordinator.releaseUpstream(symbol);
+            priceBroadcaster.remove(symbol);
+            // The node feeding upstream drops the state when it unsubscribes, which a cluster leader only does once no node wants the symbol
+            if (!clusterCoordinator.isLeader()) {
+                marketStateService.remove(symbol);
+            }
+            log.info("Released symbol [{}]", symbol);
+        }
+    }
+
+    private Object symbolLock(String symbol) {
+        return symbolLocks[(symbol.hashCode() & 0x7fffffff) % symbolLocks.length];
+    }
+
+    private static Object[] newSymbolLocks(int count) {
+        Object[] locks = new Object[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
 }
 
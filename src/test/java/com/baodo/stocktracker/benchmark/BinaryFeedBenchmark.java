@@ -0,0 +1,114 @@
+package com.baodo.stocktracker.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import com.baodo.stocktracker.service.BinaryFeedCodec;
+import com.baodo.stocktracker.service.PriceBroadcaster;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.sockjs.frame.Jackson2SockJsMessageCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server cost and wire size of one broadcaster flush for a client watching many symbols that all changed:
+ * one STOMP MESSAGE frame per symbol (JSON price, SockJS framing on top) against one binary PRICES frame.
+ * Wire bytes per price update are printed during setup.
+ * Run with: mvn -Pbenchmark test -Djmh.include=BinaryFeedBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BinaryFeedBenchmark {
+    @Param({"10", "100", "500"})
+    public int symbols;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final StompSubProtocolHandler stompHandler = new StompSubProtocolHandler();
+
+    private final Jackson2SockJsMessageCodec sockJsCodec = new Jackson2SockJsMessageCodec();
+
+    private final BinaryFeedCodec binaryCodec = new BinaryFeedCodec();
+
+    private CountingWebSocketSession stompSession;
+
+    private String[] destinations;
+
+    private double[] prices;
+
+    private long[] lastSent;
+
+    private int[] decimals;
+
+    private long sequence;
+
+    @Setup
+    public void setUp() throws Exception {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        stompSession = new CountingWebSocketSession("session", message -> sockJsCodec
+                .encode(((TextMessage) message).getPayload()).getBytes(StandardCharsets.UTF_8).length + 1);
+        destinations = new String[symbols];
+        prices = new double[symbols];
+        lastSent = new long[symbols];
+        decimals = new int[symbols];
+        for (int i = 0; i < symbols; i++) {
+            destinations[i] = PriceBroadcaster.destinationOf("SYM" + i);
+            prices[i] = 100 + i * 1.37;
+            decimals[i] = BinaryFeedCodec.decimalsFor(prices[i]);
+            lastSent[i] = BinaryFeedCodec.toFixed(prices[i], decimals[i]);
+        }
+
+        stompJson();
+        long binaryBytes = binary();
+        System.out.printf("%nWire bytes per price update: stomp+json+sockjs=%.1f, binary=%.1f%n",
+                stompSession.getBytes() / (double) symbols, binaryBytes / (double) symbols);
+    }
+
+    @Benchmark
+    public long stompJson() throws Exception {
+        tick();
+        for (int i = 0; i < symbols; i++) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setSessionId("session");
+            accessor.setSubscriptionId("sub-" + i);
+            accessor.setDestination(destinations[i]);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            accessor.setNativeHeader(PriceBroadcaster.SEQUENCE_HEADER, Long.toString(sequence));
+            stompHandler.handleMessageToClient(stompSession,
+                    MessageBuilder.createMessage(objectMapper.writeValueAsBytes(prices[i]), accessor.getMessageHeaders()));
+        }
+        return stompSession.getMessages();
+    }
+
+    @Benchmark
+    public long binary() {
+        tick();
+        binaryCodec.start(BinaryFeedCodec.PRICES, symbols);
+        for (int i = 0; i < symbols; i++) {
+            long price = BinaryFeedCodec.toFixed(prices[i], decimals[i]);
+            binaryCodec.writeVarint(i).writeSigned(price - lastSent[i]);
+            lastSent[i] = price;
+        }
+        return binaryCodec.frame().remaining();
+    }
+
+    // Moves every price by a few cents, like a busy flush
+    private void tick() {
+        sequence++;
+        for (int i = 0; i < symbols; i++) {
+            prices[i] += (sequence & 1) == 0 ? 0.03 : -0.02;
+        }
+    }
+}
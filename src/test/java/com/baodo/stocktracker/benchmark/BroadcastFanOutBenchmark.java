@@ -0,0 +1,87 @@
+package com.baodo.stocktracker.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import com.baodo.stocktracker.service.PriceBroadcaster;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one price update on its way out: the simple broker's fan-out to every subscriber of /topic/price{SYMBOL}
+ * plus the per-session STOMP encoding done by {@link StompSubProtocolHandler}, on the calling thread like a flush.
+ * The score is per update, so it should grow linearly with the subscriber count.
+ * Run with: mvn -Pbenchmark test -Djmh.include=BroadcastFanOutBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastFanOutBenchmark {
+    private static final String SYMBOL = "AAPL";
+
+    @Param({"1", "100", "1000"})
+    public int subscribers;
+
+    private final Map<String, WebSocketSession> sessions = new HashMap<>();
+
+    private SimpleBrokerMessageHandler broker;
+
+    private SimpMessagingTemplate messagingTemplate;
+
+    private long sequence;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+
+        StompSubProtocolHandler stompHandler = new StompSubProtocolHandler();
+        clientOutbound.subscribe(message -> stompHandler.handleMessageToClient(
+                sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders())), message));
+
+        broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+        broker.start();
+        for (int i = 0; i < subscribers; i++) {
+            String sessionId = "session-" + i;
+            sessions.put(sessionId, new CountingWebSocketSession(sessionId));
+            SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            subscribe.setSessionId(sessionId);
+            subscribe.setSubscriptionId("sub-0");
+            subscribe.setDestination(PriceBroadcaster.destinationOf(SYMBOL));
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+
+        messagingTemplate = new SimpMessagingTemplate(brokerChannel);
+        messagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+    }
+
+    @TearDown
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public void publishUpdate() {
+        messagingTemplate.convertAndSend(PriceBroadcaster.destinationOf(SYMBOL), 227.58,
+                Map.of(PriceBroadcaster.SEQUENCE_HEADER, ++sequence));
+    }
+}
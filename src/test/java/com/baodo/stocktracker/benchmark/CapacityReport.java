@@ -0,0 +1,193 @@
+package com.baodo.stocktracker.benchmark;
+
+import com.baodo.stocktracker.StockTrackerApplication;
+import com.baodo.stocktracker.stub.StubFinnhubServer;
+import com.baodo.stocktracker.stub.TradeFeed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Capacity run of one node, offline: starts a {@link StubFinnhubServer} with a {@link TradeFeed}, boots the app
+ * in-process against it (Redis must be reachable) and connects a {@link StompClientSwarm}.
+ * Two ramps, each stopping at its first failing step:
+ * <ol>
+ *     <li>trades/sec through {@code capacity.rates} with {@code capacity.base-clients} clients</li>
+ *     <li>clients through {@code capacity.clients} at {@code capacity.client-rate} trades/sec</li>
+ * </ol>
+ * A step passes if the node took in at least 95% of the offered trades, the trade ring never filled, client p99
+ * latency stayed within {@code capacity.slo-ms}, at most 1% of updates were skipped and no client was lost.
+ * The report is printed and written to target/capacity-report.md.
+ * Run with: mvn -Pcapacity test (other app properties can be passed as --key=value in -Dcapacity.args)
+ */
+public class CapacityReport {
+    private record Step(String ramp, int tradesPerSecond, int clients, double acceptedPerSecond, long ringFull, long maxLag,
+                        StompClientSwarm.Stats stats, boolean passed) {
+    }
+
+    private final Environment environment;
+
+    private final MeterRegistry meterRegistry;
+
+    private final TradeFeed feed;
+
+    private final StompClientSwarm swarm;
+
+    private final List<Step> steps = new ArrayList<>();
+
+    private CapacityReport(Environment environment, MeterRegistry meterRegistry, TradeFeed feed, StompClientSwarm swarm) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.feed = feed;
+        this.swarm = swarm;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Devtools would restart the app in a new class loader and run main again
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (StubFinnhubServer server = new StubFinnhubServer().start(0)) {
+            List<String> appArgs = new ArrayList<>(Arrays.asList(args));
+            appArgs.add("--server.port=0");
+            appArgs.add("--finnhub.api.key=capacity");
+            appArgs.add("--finnhub.api.base-url=" + server.baseUrl());
+            appArgs.add("--finnhub.ws.url=" + server.webSocketUrl());
+            // Quotes for the swarm's symbols must not queue behind the production rate limit
+            appArgs.add("--finnhub.rate-limit.permits-per-second=1000");
+            appArgs.add("--finnhub.rate-limit.burst=1000");
+            appArgs.add("--logging.level.root=WARN");
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(StockTrackerApplication.class).run(appArgs.toArray(String[]::new))) {
+                Environment environment = context.getEnvironment();
+                int symbolCount = environment.getProperty("capacity.symbols", Integer.class, 50);
+                int tradesPerFrame = environment.getProperty("capacity.trades-per-frame", Integer.class, 50);
+                TradeFeed feed = "recorded".equals(environment.getProperty("capacity.feed"))
+                        ? TradeFeed.recorded(server, RecordedFrames.load(RecordedFrames.TRADE_FRAMES), tradesPerFrame)
+                        : TradeFeed.synthetic(server, IntStream.range(0, symbolCount).mapToObj(i -> "SYM" + i).toList(),
+                        environment.getProperty("capacity.zipf", Double.class, 1.0), tradesPerFrame);
+
+                String url = "http://localhost:" + environment.getProperty("local.server.port") + "/ws";
+                try (StompClientSwarm swarm = new StompClientSwarm(url); feed) {
+                    new CapacityReport(environment, context.getBean(MeterRegistry.class), feed, swarm).run();
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    private void run() throws InterruptedException, IOException {
+        int[] rates = ints("capacity.rates", "1000,5000,10000,25000,50000,100000");
+        int[] clientCounts = ints("capacity.clients", "100,250,500,1000,2000,4000");
+        int baseClients = environment.getProperty("capacity.base-clients", Integer.class, 50);
+
+        feed.start(rates[0]);
+        swarm.connect(baseClients, feed.symbols());
+        // Let the subscriptions and first quotes settle
+        Thread.sleep(3000);
+        swarm.reset();
+
+        int maxRate = 0;
+        for (int rate : rates) {
+            Step step = step("trades/sec", rate, baseClients);
+            if (!step.passed()) {
+                break;
+            }
+            maxRate = rate;
+        }
+
+        int clientRate = environment.getProperty("capacity.client-rate", Integer.class, Math.max(maxRate, rates[0]));
+        int clients = baseClients;
+        int maxClients = 0;
+        for (int target : clientCounts) {
+            if (target > clients) {
+                swarm.connect(target - clients, feed.symbols());
+                clients = target;
+            }
+            Step step = step("clients", clientRate, clients);
+            if (!step.passed()) {
+                break;
+            }
+            maxClients = clients;
+        }
+
+        String report = report(maxRate, clientRate, maxClients);
+        System.out.println(report);
+        Path file = Path.of("target", "capacity-report.md");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, report);
+    }
+
+    private Step step(String ramp, int tradesPerSecond, int clients) throws InterruptedException {
+        long stepMs = environment.getProperty("capacity.step-seconds", Long.class, 10L) * 1000;
+        long sloMs = environment.getProperty("capacity.slo-ms", Long.class, 500L);
+
+        feed.setRate(tradesPerSecond);
+        swarm.reset();
+        double publishedBefore = counter("stocktracker.trades.ring.published");
+        double fullBefore = counter("stocktracker.trades.ring.full");
+        long maxLag = 0;
+        long started = System.currentTimeMillis();
+        while (System.currentTimeMillis() - started < stepMs) {
+            Thread.sleep(250);
+            for (Gauge lag : meterRegistry.find("stocktracker.trades.ring.lag").gauges()) {
+                maxLag = Math.max(maxLag, (long) lag.value());
+            }
+        }
+
+        double elapsedSeconds = (System.currentTimeMillis() - started) / 1000.0;
+        double accepted = (counter("stocktracker.trades.ring.published") - publishedBefore) / elapsedSeconds;
+        long ringFull = (long) (counter("stocktracker.trades.ring.full") - fullBefore);
+        StompClientSwarm.Stats stats = swarm.reset();
+        boolean passed = accepted >= tradesPerSecond * 0.95
+                && ringFull == 0
+                && stats.p99Ms() <= sloMs
+                && stats.skippedUpdates() <= (stats.updates() + stats.skippedUpdates()) * 0.01
+                && stats.failedClients() == 0
+                && stats.updates() > 0;
+
+        Step step = new Step(ramp, tradesPerSecond, clients, accepted, ringFull, maxLag, stats, passed);
+        steps.add(step);
+        System.out.printf(Locale.ROOT, "%s: %d trades/sec offered, %.0f accepted, %d clients, p99 %.0f ms -> %s%n",
+                ramp, tradesPerSecond, accepted, clients, stats.p99Ms(), passed ? "pass" : "FAIL");
+        return step;
+    }
+
+    private String report(int maxRate, int clientRate, int maxClients) {
+        StringBuilder report = new StringBuilder()
+                .append("# Capacity report\n\n")
+                .append(String.format(Locale.ROOT, "- %d CPU(s), max heap %d MB%n", Runtime.getRuntime().availableProcessors(),
+                        Runtime.getRuntime().maxMemory() / (1024 * 1024)))
+                .append(String.format(Locale.ROOT, "- Max sustainable trades/sec: %s%n", maxRate > 0 ? maxRate : "below the first step"))
+                .append(String.format(Locale.ROOT, "- Max clients per node at %d trades/sec: %s%n%n", clientRate, maxClients > 0 ? maxClients : "below the first step"))
+                .append("| Ramp | Offered trades/s | Accepted trades/s | Clients | Updates | Skipped | p50 ms | p99 ms | Max ms | Ring full | Max lag | Result |\n")
+                .append("|---|---|---|---|---|---|---|---|---|---|---|---|\n");
+        for (Step step : steps) {
+            StompClientSwarm.Stats stats = step.stats();
+            report.append(String.format(Locale.ROOT, "| %s | %d | %.0f | %d | %d | %d | %.1f | %.1f | %.1f | %d | %d | %s |%n",
+                    step.ramp(), step.tradesPerSecond(), step.acceptedPerSecond(), step.clients(), stats.updates(),
+                    stats.skippedUpdates(), stats.p50Ms(), stats.p99Ms(), stats.maxMs(), step.ringFull(), step.maxLag(),
+                    step.passed() ? "pass" : "fail"));
+        }
+        return report.toString();
+    }
+
+    private double counter(String name) {
+        Counter counter = meterRegistry.find(name).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private int[] ints(String property, String defaultValue) {
+        return Arrays.stream(environment.getProperty(property, defaultValue).split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,83 @@
+package com.baodo.stocktracker.benchmark;
+
+import com.baodo.stocktracker.model.MutableTrade;
+import com.baodo.stocktracker.service.FinnhubTradeDecoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes the recorded Finnhub frames once per invocation, comparing the old readTree path with the streaming decoder.
+ * Run with: mvn -Pbenchmark test -Djmh.include=FinnhubTradeDecoderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FinnhubTradeDecoderBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final FinnhubTradeDecoder decoder = new FinnhubTradeDecoder();
+
+    private String[] textFrames;
+
+    private byte[][] binaryFrames;
+
+    @Setup
+    public void setUp() {
+        List<String> frames = RecordedFrames.load(RecordedFrames.TRADE_FRAMES);
+        textFrames = frames.toArray(String[]::new);
+        binaryFrames = frames.stream().map(frame -> frame.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+    }
+
+    @Benchmark
+    public void readTree(Blackhole blackhole) throws IOException {
+        for (String frame : textFrames) {
+            JsonNode json = objectMapper.readTree(frame);
+            if ("trade".equals(json.get("type").asText())) {
+                for (JsonNode trade : json.get("data")) {
+                    blackhole.consume(trade.get("s").asText());
+                    blackhole.consume(trade.get("p").asDouble());
+                    blackhole.consume(trade.get("v").asDouble());
+                    blackhole.consume(trade.get("t").asLong());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void streamingText(Blackhole blackhole) throws IOException {
+        for (String frame : textFrames) {
+            if (decoder.decode(frame) == FinnhubTradeDecoder.FrameType.TRADE) {
+                consumeTrades(blackhole);
+            }
+        }
+    }
+
+    @Benchmark
+    public void streamingBytes(Blackhole blackhole) throws IOException {
+        for (byte[] frame : binaryFrames) {
+            if (decoder.decode(frame, 0, frame.length) == FinnhubTradeDecoder.FrameType.TRADE) {
+                consumeTrades(blackhole);
+            }
+        }
+    }
+
+    private void consumeTrades(Blackhole blackhole) {
+        for (int i = 0; i < decoder.getTradeCount(); i++) {
+            MutableTrade trade = decoder.getTrade(i);
+            blackhole.consume(trade.getSymbol());
+            blackhole.consume(trade.getPrice());
+            blackhole.consume(trade.getVolume());
+            blackhole.consume(trade.getTimestamp());
+        }
+    }
+}
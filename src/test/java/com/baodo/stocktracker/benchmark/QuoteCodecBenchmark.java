@@ -0,0 +1,74 @@
+package com.baodo.stocktracker.benchmark;
+
+import com.baodo.stocktracker.model.CachedQuote;
+import com.baodo.stocktracker.service.QuoteCodec;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary quote codec with GenericJackson2JsonRedisSerializer, both for the scalar price
+ * we used to cache and for the full quote record. Payload sizes are printed during setup.
+ * Run with: mvn -Pbenchmark test -Djmh.include=QuoteCodecBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuoteCodecBenchmark {
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private final QuoteCodec quoteCodec = new QuoteCodec();
+
+    private final CachedQuote quote = new CachedQuote(227.58, 125.0, 1727712000052L, 229.1, 225.37);
+
+    private final Double price = quote.getPrice();
+
+    private byte[] jsonPrice;
+
+    private byte[] jsonQuote;
+
+    private byte[] binaryQuote;
+
+    @Setup
+    public void setUp() {
+        jsonPrice = jsonSerializer.serialize(price);
+        jsonQuote = jsonSerializer.serialize(quote);
+        binaryQuote = quoteCodec.serialize(quote);
+        System.out.printf("%nPayload bytes: json(Double)=%d, json(CachedQuote)=%d, binary(CachedQuote)=%d%n",
+                jsonPrice.length, jsonQuote.length, binaryQuote.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJsonPrice() {
+        return jsonSerializer.serialize(price);
+    }
+
+    @Benchmark
+    public Object decodeJsonPrice() {
+        return jsonSerializer.deserialize(jsonPrice);
+    }
+
+    @Benchmark
+    public byte[] encodeJsonQuote() {
+        return jsonSerializer.serialize(quote);
+    }
+
+    @Benchmark
+    public Object decodeJsonQuote() {
+        return jsonSerializer.deserialize(jsonQuote);
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryQuote() {
+        return quoteCodec.serialize(quote);
+    }
+
+    @Benchmark
+    public CachedQuote decodeBinaryQuote() {
+        return quoteCodec.deserialize(binaryQuote);
+    }
+}
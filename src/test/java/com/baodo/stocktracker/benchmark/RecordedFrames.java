@@ -0,0 +1,25 @@
+package com.baodo.stocktracker.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+public final class RecordedFrames {
+    public static final String TRADE_FRAMES = "/finnhub/trade-frames.jsonl";
+
+    private RecordedFrames() {
+    }
+
+    public static List<String> load(String resource) {
+        try (InputStream in = Objects.requireNonNull(RecordedFrames.class.getResourceAsStream(resource), resource);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().filter(line -> !line.isBlank()).toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load recorded frames from " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.baodo.stocktracker.benchmark;
+
+import com.baodo.stocktracker.service.PriceBroadcaster;
+import com.baodo.stocktracker.stub.TradeFeed;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A swarm of STOMP-over-SockJS clients, each tracking one symbol through /app/trackingSymbol like the browser page.
+ * Every price update is checked against its {@value PriceBroadcaster#SEQUENCE_HEADER} header for skipped updates and
+ * timed against the send time a {@link TradeFeed} encodes into its prices.
+ */
+public class StompClientSwarm implements AutoCloseable {
+    public record Stats(int clients, int failedClients, long updates, long skippedUpdates, double p50Ms, double p99Ms, double maxMs) {
+    }
+
+    private final WebSocketStompClient stompClient;
+
+    private final ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+
+    private final String url;
+
+    private final List<StompSession> sessions = new CopyOnWriteArrayList<>();
+
+    private final LongAdder failedClients = new LongAdder();
+
+    private final LongAdder updates = new LongAdder();
+
+    private final LongAdder skippedUpdates = new LongAdder();
+
+    private volatile Timer latency;
+
+    public StompClientSwarm(String url) {
+        this.url = url;
+        heartbeatScheduler.setPoolSize(1);
+        heartbeatScheduler.setThreadNamePrefix("swarm-heartbeat-");
+        heartbeatScheduler.initialize();
+        stompClient = new WebSocketStompClient(new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setTaskScheduler(heartbeatScheduler);
+        reset();
+    }
+
+    /**
+     * Connects more clients, client i tracking {@code symbols[i % symbols.size()]}; returns once all have connected or failed.
+     */
+    public void connect(int clients, List<String> symbols) {
+        int first = sessions.size() + failedClients.intValue();
+        List<CompletableFuture<StompSession>> connecting = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            String symbol = symbols.get((first + i) % symbols.size());
+            connecting.add(stompClient.connectAsync(url, new StompSessionHandlerAdapter() {
+                @Override
+                public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
+                    session.subscribe(PriceBroadcaster.destinationOf(symbol), new PriceHandler());
+                    session.send("/app/trackingSymbol", Map.of("newSymbol", symbol));
+                }
+            }).whenComplete((session, ex) -> {
+                if (ex == null) {
+                    sessions.add(session);
+                } else {
+                    failedClients.increment();
+                }
+            }));
+        }
+        connecting.forEach(future -> {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                // Counted as a failed client
+            }
+        });
+    }
+
+    /**
+     * Stats since the previous call (or creation); latency and update counts start over.
+     */
+    public Stats reset() {
+        Timer previous = latency;
+        latency = Timer.builder("swarm.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(new SimpleMeterRegistry());
+        long received = updates.sumThenReset();
+        long skipped = skippedUpdates.sumThenReset();
+        if (previous == null) {
+            return null;
+        }
+
+        double p50 = 0;
+        double p99 = 0;
+        for (ValueAtPercentile percentile : previous.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.5) {
+                p50 = percentile.value(TimeUnit.MILLISECONDS);
+            } else {
+                p99 = percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        int open = (int) sessions.stream().filter(StompSession::isConnected).count();
+        return new Stats(open, failedClients.intValue() + sessions.size() - open, received, skipped, p50, p99,
+                previous.max(TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void close() {
+        sessions.forEach(session -> {
+            if (session.isConnected()) {
+                session.disconnect();
+            }
+        });
+        stompClient.stop();
+        heartbeatScheduler.shutdown();
+    }
+
+    private final class PriceHandler implements StompFrameHandler {
+        private final AtomicLong lastSeq = new AtomicLong();
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Double.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            updates.increment();
+            latency.record(TradeFeed.latencyMs((Double) payload), TimeUnit.MILLISECONDS);
+
+            String seq = headers.getFirst(PriceBroadcaster.SEQUENCE_HEADER);
+            if (seq != null) {
+                long current = Long.parseLong(seq);
+                long previous = lastSeq.getAndSet(current);
+                // The first update only sets the baseline
+                if (previous > 0 && current > previous + 1) {
+                    skippedUpdates.add(current - previous - 1);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.baodo.stocktracker.benchmark;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.ThreadLocalCurrentTraceContext;
+import brave.propagation.TraceContext;
+import brave.sampler.Sampler;
+import com.baodo.stocktracker.service.TailSamplingSpanHandler;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.brave.bridge.BraveBaggageManager;
+import io.micrometer.tracing.brave.bridge.BraveCurrentTraceContext;
+import io.micrometer.tracing.brave.bridge.BraveTracer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tick instrumentation cost of the two tracing tiers around the same unit of work (a cache write stand-in):
+ * a span per operation, exported directly as with {@code management.tracing.sampling.probability = 1.0} (FULL),
+ * the same span behind the tail sampler, and the CONTROL_PLANE tier's pre-registered timer.
+ * Exporting is a no-op handler, so the numbers are the in-process cost only, before any Zipkin I/O.
+ * Run with: mvn -Pbenchmark test -Djmh.include=TracingOverheadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TracingOverheadBenchmark {
+    private static final SpanHandler DISCARD = new SpanHandler() {
+        @Override
+        public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+            return true;
+        }
+    };
+
+    private Tracing fullTracing;
+
+    private Tracing tailTracing;
+
+    private Tracer fullTracer;
+
+    private Tracer tailTracer;
+
+    private Timer timer;
+
+    private long tick;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        fullTracing = Tracing.newBuilder()
+                .sampler(Sampler.ALWAYS_SAMPLE)
+                .currentTraceContext(ThreadLocalCurrentTraceContext.create())
+                .addSpanHandler(DISCARD)
+                .build();
+        tailTracing = Tracing.newBuilder()
+                .sampler(Sampler.ALWAYS_SAMPLE)
+                .currentTraceContext(ThreadLocalCurrentTraceContext.create())
+                .addSpanHandler(new TailSamplingSpanHandler(() -> List.of(DISCARD), 500, 1000, meterRegistry))
+                .addSpanHandler(DISCARD)
+                .build();
+        fullTracer = bridge(fullTracing);
+        tailTracer = bridge(tailTracing);
+        timer = Timer.builder("stocktracker.redis.commands").tag("command", "save").register(meterRegistry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fullTracing.close();
+        tailTracing.close();
+    }
+
+    @Benchmark
+    public void baseline(Blackhole blackhole) {
+        work(blackhole);
+    }
+
+    @Benchmark
+    public void fullTierSpanPerTick(Blackhole blackhole) {
+        traced(fullTracer, blackhole);
+    }
+
+    @Benchmark
+    public void fullTierSpanPerTickTailSampled(Blackhole blackhole) {
+        traced(tailTracer, blackhole);
+    }
+
+    @Benchmark
+    public void controlPlaneTierTimer(Blackhole blackhole) {
+        timer.record(() -> work(blackhole));
+    }
+
+    private void traced(Tracer tracer, Blackhole blackhole) {
+        Span span = tracer.nextSpan().name("RedisService - save: Saving Symbol to Cache");
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span.start())) {
+            work(blackhole);
+        } finally {
+            span.end();
+        }
+    }
+
+    private void work(Blackhole blackhole) {
+        blackhole.consume(Long.toString(++tick).hashCode());
+    }
+
+    private static Tracer bridge(Tracing tracing) {
+        return new BraveTracer(tracing.tracer(), new BraveCurrentTraceContext(tracing.currentTraceContext()), new BraveBaggageManager());
+    }
+}
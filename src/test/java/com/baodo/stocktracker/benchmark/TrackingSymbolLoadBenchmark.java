@@ -0,0 +1,130 @@
+package com.baodo.stocktracker.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import com.baodo.stocktracker.dto.response.SymbolQuoteResponse;
+import com.baodo.stocktracker.service.ClusterCoordinator;
+import com.baodo.stocktracker.service.FinnhubService;
+import com.baodo.stocktracker.service.MarketStateService;
+import com.baodo.stocktracker.service.PriceBroadcaster;
+import com.baodo.stocktracker.service.QuoteCacheService;
+import com.baodo.stocktracker.service.QuoteLookupService;
+import com.baodo.stocktracker.service.SubscriptionRegistry;
+import com.baodo.stocktracker.service.SymbolLingerService;
+import com.baodo.stocktracker.service.WatchlistService;
+import com.baodo.stocktracker.service.WebSocketService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load test for the STOMP inbound path: pushes batches of /app/trackingSymbol requests through a pool sized like
+ * Spring's clientInboundChannel while the stubbed Finnhub REST latency rises. Every request misses the cache.
+ * The score is the inbound-thread cost per message; it should stay flat regardless of Finnhub latency.
+ * Run with: mvn -Pbenchmark test -Djmh.include=TrackingSymbolLoadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingSymbolLoadBenchmark {
+    private static final int BATCH = 2_000;
+
+    private static final String[] SYMBOLS = {"AAPL", "MSFT", "NVDA", "TSLA", "AMZN", "META", "GOOGL", "AMD"};
+
+    @Param({"0", "50", "250", "1000"})
+    private long finnhubLatencyMs;
+
+    private final AtomicLong sessionIds = new AtomicLong();
+
+    private final List<CompletableFuture<Void>> pending = new CopyOnWriteArrayList<>();
+
+    private ExecutorService inboundChannel;
+
+    private WebSocketService webSocketService;
+
+    @Setup
+    public void setUp() {
+        // Outside Spring, logback defaults to DEBUG on the console, which would dominate the measurement
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(ch.qos.logback.classic.Level.WARN);
+
+        SymbolQuoteResponse quote = new SymbolQuoteResponse();
+        quote.setC(227.58);
+        quote.setH(229.1);
+        quote.setL(225.37);
+        quote.setT(1727712000L);
+
+        FinnhubService finnhubService = mock(FinnhubService.class);
+        when(finnhubService.getQuote(anyString()))
+                .thenAnswer(invocation -> Mono.delay(Duration.ofMillis(finnhubLatencyMs)).map(tick -> quote));
+
+        QuoteLookupService quoteLookupService = new QuoteLookupService(finnhubService, new SimpleMeterRegistry(), 30, 10_000);
+        quoteLookupService.init();
+
+        QuoteCacheService quoteCacheService = mock(QuoteCacheService.class);
+        PriceBroadcaster priceBroadcaster = mock(PriceBroadcaster.class);
+        SubscriptionRegistry subscriptionRegistry = new SubscriptionRegistry();
+        SymbolLingerService symbolLingerService = new SymbolLingerService(new SimpleMeterRegistry(), 30, 100);
+        ClusterCoordinator clusterCoordinator = new ClusterCoordinator(finnhubService, priceBroadcaster, quoteCacheService,
+                subscriptionRegistry, symbolLingerService, null, null, new ObjectMapper(), new SimpleMeterRegistry(), false, 10_000, "benchmark");
+
+        webSocketService = new WebSocketService(
+                mock(SimpMessagingTemplate.class),
+                quoteCacheService,
+                clusterCoordinator,
+                quoteLookupService,
+                priceBroadcaster,
+                subscriptionRegistry,
+                symbolLingerService,
+                mock(MarketStateService.class),
+                mock(WatchlistService.class),
+                Tracer.NOOP
+        );
+        inboundChannel = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        inboundChannel.shutdownNow();
+    }
+
+    @TearDown(Level.Invocation)
+    public void awaitPipelines() {
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        pending.clear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void inboundTrackingRequests() throws InterruptedException {
+        CountDownLatch handled = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            String sessionId = "session-" + sessionIds.incrementAndGet();
+            String symbol = SYMBOLS[i % SYMBOLS.length];
+            inboundChannel.execute(() -> {
+                pending.add(webSocketService.handleTrackingSymbol(sessionId, null, symbol));
+                handled.countDown();
+            });
+        }
+        handled.await();
+    }
+}
@@ -0,0 +1,74 @@
+package com.baodo.stocktracker.benchmark;
+
+import com.baodo.stocktracker.service.TradeRingBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end events/sec through the trade ring: the benchmark thread publishes a batch of trades and waits until the
+ * slowest of three consumer stages has handled all of them, per wait strategy.
+ * Run with: mvn -Pbenchmark test -Djmh.include=TradeRingBufferBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradeRingBufferBenchmark {
+    private static final int BATCH = 4096;
+
+    private static final String[] SYMBOLS = {"AAPL", "MSFT", "NVDA", "AMZN", "META", "TSLA", "GOOGL", "BINANCE:BTCUSDT"};
+
+    @Param({"BUSY_SPIN", "YIELDING", "SLEEPING"})
+    public TradeRingBuffer.WaitStrategy waitStrategy;
+
+    @Param({"65536"})
+    public int capacity;
+
+    private TradeRingBuffer ringBuffer;
+
+    private final AtomicLong[] handled = new AtomicLong[3];
+
+    private long published;
+
+    @Setup
+    public void setUp() {
+        ringBuffer = new TradeRingBuffer(capacity, new SimpleMeterRegistry());
+        for (int i = 0; i < handled.length; i++) {
+            AtomicLong counter = handled[i] = new AtomicLong();
+            // Roughly the work of a real stage: read every field of the event
+            ringBuffer.addConsumer("stage-" + i, (event, sequence, endOfBatch) -> {
+                if (event.getSymbol() != null && event.getPrice() * event.getVolume() >= 0 && event.getTimestamp() >= 0) {
+                    counter.lazySet(sequence + 1);
+                }
+            }, waitStrategy);
+        }
+        ringBuffer.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ringBuffer.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long publishAndDrain() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < BATCH; i++) {
+            ringBuffer.publish(SYMBOLS[i & (SYMBOLS.length - 1)], 100 + i * 0.01, 1, now + i, now);
+        }
+        published += BATCH;
+
+        for (AtomicLong counter : handled) {
+            while (counter.get() < published) {
+                Thread.onSpinWait();
+            }
+        }
+        return published;
+    }
+}
@@ -0,0 +1,112 @@
+package com.baodo.stocktracker.controller;
+
+import com.baodo.stocktracker.dto.response.NewsItemResponse;
+import com.baodo.stocktracker.exception.GlobalExceptionHandler;
+import com.baodo.stocktracker.service.NewsService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class NewsControllerTests {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final NewsService newsService = mock(NewsService.class);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // Newest first, as the service streams them; three articles share a datetime
+        when(newsService.streamCompanyNews("AAPL")).thenAnswer(invocation -> Flux.just(
+                item(100, 9), item(100, 7), item(100, 5), item(90, 8), item(80, 3)));
+        mockMvc = MockMvcBuilders.standaloneSetup(new NewsController(newsService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void pagesThroughEqualDatetimesWithoutSkippingOrRepeating() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        for (int page = 0; page < 3; page++) {
+            List<Map<String, Object>> items = stream("/company-news/stream?symbol=AAPL&limit=2" + (cursor == null ? "" : "&cursor=" + cursor));
+            assertThat(items).hasSizeLessThanOrEqualTo(2);
+            for (Map<String, Object> item : items) {
+                ids.add(((Number) item.get("id")).longValue());
+            }
+            Map<String, Object> last = items.get(items.size() - 1);
+            cursor = last.get("datetime") + ":" + last.get("id");
+        }
+
+        assertThat(ids).containsExactly(9L, 7L, 5L, 8L, 3L);
+        assertThat(stream("/company-news/stream?symbol=AAPL&limit=2&cursor=" + cursor)).isEmpty();
+    }
+
+    @Test
+    void projectsTheRequestedFieldsPlusTheCursorFields() throws Exception {
+        List<Map<String, Object>> items = stream("/company-news/stream?symbol=AAPL&limit=1&fields=headline");
+
+        assertThat(items).singleElement().satisfies(item ->
+                assertThat(item).containsOnlyKeys("id", "datetime", "headline").containsEntry("headline", "Story 9"));
+    }
+
+    @Test
+    void rejectsUnknownFieldsAndOutOfRangeLimits() throws Exception {
+        mockMvc.perform(get("/company-news/stream?symbol=AAPL&fields=headline,bogus"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("bogus")));
+        mockMvc.perform(get("/company-news/stream?symbol=AAPL&limit=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/company-news/stream?symbol=AAPL&limit=201")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/company-news/stream?symbol=AAPL&cursor=yesterday")).andExpect(status().isBadRequest());
+    }
+
+    private List<Map<String, Object>> stream(String uri) throws Exception {
+        MvcResult started = mockMvc.perform(get(uri).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isBlank()) {
+                items.add(objectMapper.readValue(line, new TypeReference<>() {
+                }));
+            }
+        }
+        return items;
+    }
+
+    private static NewsItemResponse item(long datetime, long id) {
+        NewsItemResponse item = new NewsItemResponse();
+        item.setDatetime(datetime);
+        item.setId(id);
+        item.setHeadline("Story " + id);
+        return item;
+    }
+}
@@ -0,0 +1,35 @@
+package com.baodo.stocktracker.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedQuoteTests {
+    // 2024-09-30T16:00:00Z
+    private static final long T0 = 1727712000000L;
+
+    @Test
+    void tracksDayHighAndLowWithinADay() {
+        CachedQuote quote = CachedQuote.ofTrade(100, 1, T0)
+                .withTrade(105, 1, T0 + 1000)
+                .withTrade(98, 1, T0 + 2000);
+
+        assertThat(quote.getDayHigh()).isEqualTo(105);
+        assertThat(quote.getDayLow()).isEqualTo(98);
+        assertThat(quote.getPrice()).isEqualTo(98);
+    }
+
+    @Test
+    void resetsDayHighAndLowOnUtcDayRollover() {
+        CachedQuote quote = CachedQuote.ofTrade(100, 1, T0)
+                .withTrade(120, 1, T0 + 1000)
+                .withTrade(80, 1, T0 + 2000);
+
+        // 2024-10-01T00:00:01Z
+        CachedQuote nextDay = quote.withTrade(101, 2, 1727740801000L);
+
+        assertThat(nextDay.getDayHigh()).isEqualTo(101);
+        assertThat(nextDay.getDayLow()).isEqualTo(101);
+        assertThat(nextDay.getVolume()).isEqualTo(2);
+    }
+}
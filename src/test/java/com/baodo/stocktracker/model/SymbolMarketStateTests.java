@@ -0,0 +1,82 @@
+package com.baodo.stocktracker.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SymbolMarketStateTests {
+    // 2024-10-01T14:30:00Z
+    private static final long OPEN = 1727793000000L;
+
+    @Test
+    void buildsBarsAcrossResolutionsAndKeepsDayStats() {
+        SymbolMarketState state = new SymbolMarketState("AAPL", new int[]{3, 10, 10}, 4);
+
+        state.onTrade(100, 10, OPEN);
+        state.onTrade(102, 30, OPEN + 400);
+        state.onTrade(99, 10, OPEN + 1_500);
+        state.onTrade(101, 20, OPEN + 61_000);
+        // Late trade for the first second, still in the ring
+        state.onTrade(103, 10, OPEN + 900);
+
+        List<BarSeries.Bar> seconds = state.recentBars(SymbolMarketState.Resolution.SECOND_1, 10);
+        assertThat(seconds).extracting(BarSeries.Bar::start).containsExactly(OPEN, OPEN + 1_000, OPEN + 61_000);
+        assertThat(seconds.get(0)).satisfies(bar -> {
+            assertThat(bar.open()).isEqualTo(100);
+            assertThat(bar.high()).isEqualTo(103);
+            assertThat(bar.close()).isEqualTo(102);
+            assertThat(bar.volume()).isEqualTo(50);
+            assertThat(bar.trades()).isEqualTo(3);
+        });
+
+        List<BarSeries.Bar> minutes = state.recentBars(SymbolMarketState.Resolution.MINUTE_1, 10);
+        assertThat(minutes).hasSize(2);
+        assertThat(minutes.get(0).low()).isEqualTo(99);
+        assertThat(minutes.get(0).vwap()).isEqualTo((100 * 10 + 102 * 30 + 99 * 10 + 103 * 10) / 60.0);
+
+        SymbolMarketState.Snapshot snapshot = state.snapshot();
+        assertThat(snapshot.lastPrice()).isEqualTo(101);
+        assertThat(snapshot.dayOpen()).isEqualTo(100);
+        assertThat(snapshot.dayHigh()).isEqualTo(103);
+        assertThat(snapshot.dayLow()).isEqualTo(99);
+        assertThat(snapshot.dayVolume()).isEqualTo(80);
+        assertThat(snapshot.bar5m().trades()).isEqualTo(5);
+
+        assertThat(state.recentTrades()).extracting(SymbolMarketState.Trade::price).containsExactly(102.0, 99.0, 101.0, 103.0);
+    }
+
+    @Test
+    void keepsOnlyTheNewestBarsOnceTheRingIsFull() {
+        SymbolMarketState state = new SymbolMarketState("AAPL", new int[]{3, 10, 10}, 4);
+
+        for (int i = 0; i < 5; i++) {
+            state.onTrade(100 + i, 1, OPEN + i * 1_000L);
+        }
+
+        assertThat(state.recentBars(SymbolMarketState.Resolution.SECOND_1, 10))
+                .extracting(BarSeries.Bar::close)
+                .containsExactly(102.0, 103.0, 104.0);
+    }
+
+    @Test
+    void seedsDayStatsFromTheQuoteAndResetsThemOnANewDay() {
+        SymbolMarketState state = new SymbolMarketState("AAPL", new int[]{3, 10, 10}, 4);
+
+        state.seedDay(98, 105, 97, OPEN - 60_000);
+        state.onTrade(100, 10, OPEN);
+        assertThat(state.snapshot()).satisfies(snapshot -> {
+            assertThat(snapshot.dayOpen()).isEqualTo(98);
+            assertThat(snapshot.dayHigh()).isEqualTo(105);
+            assertThat(snapshot.dayLow()).isEqualTo(97);
+        });
+
+        state.onTrade(110, 5, OPEN + 86_400_000L);
+        assertThat(state.snapshot()).satisfies(snapshot -> {
+            assertThat(snapshot.dayOpen()).isEqualTo(110);
+            assertThat(snapshot.dayLow()).isEqualTo(110);
+            assertThat(snapshot.dayVolume()).isEqualTo(5);
+        });
+    }
+}
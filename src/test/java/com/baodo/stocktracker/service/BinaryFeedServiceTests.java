@@ -0,0 +1,207 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.SymbolSnapshot;
+import com.baodo.stocktracker.model.WatchlistSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BinaryFeedServiceTests {
+    private final List<Object> sent = new CopyOnWriteArrayList<>();
+
+    private BinaryFeedService binaryFeedService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // One writer thread, so a stalled session would hold up every other one
+        binaryFeedService = new BinaryFeedService(mock(PriceBroadcaster.class), new ObjectMapper(), new SimpleMeterRegistry(), 1, 200, 64 * 1024, 8);
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        // Frames share the session's encode buffer, so copy them as they are written
+        doAnswer(invocation -> {
+            WebSocketMessage<?> message = invocation.getArgument(0);
+            if (message instanceof BinaryMessage binary) {
+                ByteBuffer payload = binary.getPayload();
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                sent.add(bytes);
+            } else {
+                sent.add(((TextMessage) message).getPayload());
+            }
+            return null;
+        }).when(session).sendMessage(any());
+        binaryFeedService.addSession(session);
+    }
+
+    @AfterEach
+    void tearDown() {
+        binaryFeedService.stop();
+    }
+
+    @Test
+    void sendsSymbolIdsThenDeltasThatAddUpToTheLatestPrices() {
+        binaryFeedService.deliver("s1", new WatchlistSnapshot(List.of(snapshot("AAPL", 3, 227.58), snapshot("MSFT", 7, 431.27)), List.of("NOPE")));
+        await().until(() -> sent.size() == 2);
+
+        binaryFeedService.onFlush(Map.of("AAPL", 227.61, "NVDA", 118.89));
+        await().until(() -> sent.size() == 3);
+        binaryFeedService.onFlush(Map.of("AAPL", 227.61, "MSFT", 430.99));
+        await().until(() -> sent.size() == 4);
+
+        Decoder decoder = new Decoder();
+        sent.forEach(decoder::decode);
+        assertThat(decoder.symbols).containsEntry(0, "AAPL").containsEntry(1, "MSFT").hasSize(2);
+        assertThat(decoder.prices).containsEntry(0, 227.61).containsEntry(1, 430.99);
+        assertThat(decoder.updatesPerFrame).containsExactly(1, 1);
+        assertThat((String) sent.get(1)).contains("\"unavailable\"").contains("NOPE");
+    }
+
+    @Test
+    void keepsIdsAcrossSymbolSetChangesAndStopsDroppedSymbols() {
+        binaryFeedService.deliver("s1", new WatchlistSnapshot(List.of(snapshot("AAPL", 1, 100), snapshot("MSFT", 1, 200)), List.of()));
+        binaryFeedService.deliver("s1", new WatchlistSnapshot(List.of(snapshot("MSFT", 2, 201)), List.of()));
+        binaryFeedService.onFlush(Map.of("AAPL", 101.0, "MSFT", 202.5));
+        await().until(() -> sent.size() == 3);
+
+        Decoder decoder = new Decoder();
+        sent.forEach(decoder::decode);
+        assertThat(decoder.symbols).containsOnlyKeys(1);
+        assertThat(decoder.prices).containsOnly(Map.entry(1, 202.5));
+    }
+
+    @Test
+    void scalesLowPricedSymbolsWithMoreDecimals() {
+        binaryFeedService.deliver("s1", new WatchlistSnapshot(List.of(snapshot("BINANCE:SHIBUSDT", 1, 0.00001234), snapshot("AAPL", 1, 227.58)), List.of()));
+        binaryFeedService.onFlush(Map.of("BINANCE:SHIBUSDT", 0.00001241, "AAPL", 227.61));
+        await().until(() -> sent.size() == 2);
+
+        Decoder decoder = new Decoder();
+        sent.forEach(decoder::decode);
+        assertThat(decoder.decimals).containsEntry(0, 10).containsEntry(1, 4);
+        assertThat(decoder.prices.get(0)).isCloseTo(0.00001241, within(1e-12));
+        assertThat(decoder.prices).containsEntry(1, 227.61);
+    }
+
+    @Test
+    void disconnectsAStalledSessionSoOthersKeepGettingFrames() throws Exception {
+        binaryFeedService.start();
+        CountDownLatch closed = new CountDownLatch(1);
+        WebSocketSession stalled = mock(WebSocketSession.class);
+        when(stalled.getId()).thenReturn("s2");
+        when(stalled.isOpen()).thenReturn(true);
+        // Blocks like a write to a client that stopped reading, until the connection is closed
+        doAnswer(invocation -> {
+            closed.await();
+            throw new IOException("Connection closed");
+        }).when(stalled).sendMessage(any());
+        doAnswer(invocation -> {
+            closed.countDown();
+            return null;
+        }).when(stalled).close(any());
+        binaryFeedService.addSession(stalled);
+
+        binaryFeedService.deliver("s2", new WatchlistSnapshot(List.of(snapshot("AAPL", 1, 227.58)), List.of()));
+        verify(stalled, timeout(1_000)).sendMessage(any());
+        binaryFeedService.deliver("s1", new WatchlistSnapshot(List.of(snapshot("MSFT", 1, 431.27)), List.of()));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> sent.size() == 1);
+        verify(stalled).close(any(CloseStatus.class));
+        binaryFeedService.onFlush(Map.of("AAPL", 227.61, "MSFT", 430.99));
+        await().atMost(Duration.ofSeconds(5)).until(() -> sent.size() == 2);
+        verify(stalled).sendMessage(any());
+    }
+
+    private static SymbolSnapshot snapshot(String symbol, long seq, double price) {
+        return new SymbolSnapshot(symbol, seq, price, 1727712000000L, price, price, price, price, 0, List.of());
+    }
+
+    /**
+     * Client-side view of the feed: the current symbol set and the price of every id.
+     */
+    private static final class Decoder {
+        private final Map<Integer, String> symbols = new HashMap<>();
+
+        private final Map<Integer, Double> prices = new HashMap<>();
+
+        private final List<Integer> updatesPerFrame = new CopyOnWriteArrayList<>();
+
+        private final Map<Integer, Long> fixed = new HashMap<>();
+
+        private final Map<Integer, Integer> decimals = new HashMap<>();
+
+        void decode(Object frame) {
+            if (!(frame instanceof byte[] bytes)) {
+                return;
+            }
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            byte type = in.get();
+            int count = (int) varint(in);
+            if (type == BinaryFeedCodec.SYMBOLS) {
+                symbols.clear();
+                for (int i = 0; i < count; i++) {
+                    int id = (int) varint(in);
+                    varint(in);
+                    decimals.put(id, (int) varint(in));
+                    fixed.put(id, signed(in));
+                    byte[] symbol = new byte[(int) varint(in)];
+                    in.get(symbol);
+                    symbols.put(id, new String(symbol, StandardCharsets.US_ASCII));
+                }
+            } else {
+                updatesPerFrame.add(count);
+                for (int i = 0; i < count; i++) {
+                    int id = (int) varint(in);
+                    fixed.merge(id, signed(in), Long::sum);
+                }
+            }
+            prices.clear();
+            symbols.keySet().forEach(id -> prices.put(id, fixed.get(id) / Math.pow(10, decimals.get(id))));
+            assertThat(in.hasRemaining()).isFalse();
+        }
+
+        private static long varint(ByteBuffer in) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        private static long signed(ByteBuffer in) {
+            long zigzag = varint(in);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+    }
+}
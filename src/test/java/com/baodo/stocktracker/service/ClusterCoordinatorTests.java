@@ -0,0 +1,203 @@
+package com.baodo.stocktracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClusterCoordinatorTests {
+    private static final long LEASE_MS = 600;
+
+    private static RedisServer redisServer;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void flushRedis() {
+        try (var connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(Node::stop);
+    }
+
+    @Test
+    void standaloneNodeOwnsTheUpstreamFeed() {
+        FinnhubService finnhubService = mock(FinnhubService.class);
+        QuoteCacheService quoteCacheService = mock(QuoteCacheService.class);
+        ClusterCoordinator coordinator = new ClusterCoordinator(finnhubService, mock(PriceBroadcaster.class), quoteCacheService,
+                new SubscriptionRegistry(), mock(SymbolLingerService.class), null, null, new ObjectMapper(), new SimpleMeterRegistry(), false, 10_000, "");
+
+        coordinator.start();
+        coordinator.acquireUpstream("AAPL");
+        coordinator.releaseUpstream("AAPL");
+
+        assertThat(coordinator.isLeader()).isTrue();
+        verify(finnhubService).connect();
+        verify(finnhubService).subscribeSymbol("AAPL");
+        verify(finnhubService).unsubscribeSymbol("AAPL");
+        verify(quoteCacheService).evict("AAPL");
+    }
+
+    @Test
+    void electsOneLeaderAndFailsOverWhenItLeaves() {
+        Node first = startNode("node-1");
+        await().atMost(Duration.ofSeconds(5)).until(first.coordinator::isLeader);
+        Node second = startNode("node-2");
+
+        await().during(Duration.ofMillis(LEASE_MS)).atMost(Duration.ofSeconds(5)).until(() -> !second.coordinator.isLeader());
+        verify(first.finnhubService).connect();
+        verify(second.finnhubService, never()).connect();
+
+        first.stop();
+
+        await().atMost(Duration.ofSeconds(5)).until(second.coordinator::isLeader);
+        verify(first.finnhubService).disconnect();
+        verify(second.finnhubService).connect();
+    }
+
+    @Test
+    void leaderSubscribesToTheUnionOfInterestAndRelaysPrices() {
+        Node leader = startNode("node-1");
+        await().atMost(Duration.ofSeconds(5)).until(leader.coordinator::isLeader);
+        Node follower = startNode("node-2");
+
+        leader.view("AAPL");
+        follower.view("MSFT");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> leader.upstream.containsAll(Set.of("AAPL", "MSFT")));
+        assertThat(follower.upstream).isEmpty();
+
+        // The leader's flushed prices reach the follower for the symbols it is viewing only
+        leader.flushListener.accept(Map.of("AAPL", 227.58, "MSFT", 431.27));
+        ArgumentCaptor<Predicate<String>> live = ArgumentCaptor.captor();
+        verify(follower.priceBroadcaster, timeout(5_000)).publish(eq("MSFT"), eq(431.27), eq(0L), live.capture());
+        verify(follower.priceBroadcaster, after(200).never()).publish(eq("AAPL"), anyDouble(), anyLong(), any());
+        verify(leader.priceBroadcaster, never()).publish(anyString(), anyDouble(), anyLong(), any());
+        assertThat(live.getValue().test("MSFT")).isTrue();
+
+        // Once the follower stops viewing MSFT, the leader drops it upstream and a late relay can no longer re-create it
+        follower.unview("MSFT");
+        assertThat(live.getValue().test("MSFT")).isFalse();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !leader.upstream.contains("MSFT"));
+        assertThat(leader.upstream).containsExactly("AAPL");
+        verify(leader.priceBroadcaster).remove("MSFT");
+        verify(leader.quoteCacheService).evict("MSFT");
+    }
+
+    private Node startNode(String nodeId) {
+        Node node = new Node(nodeId);
+        nodes.add(node);
+        node.coordinator.start();
+        return node;
+    }
+
+    private static final class Node {
+        private final Set<String> upstream = ConcurrentHashMap.newKeySet();
+
+        private final FinnhubService finnhubService = mock(FinnhubService.class);
+
+        private final PriceBroadcaster priceBroadcaster = mock(PriceBroadcaster.class);
+
+        private final QuoteCacheService quoteCacheService = mock(QuoteCacheService.class);
+
+        private final SubscriptionRegistry subscriptionRegistry = new SubscriptionRegistry();
+
+        private final ClusterCoordinator coordinator;
+
+        private Consumer<Map<String, Double>> flushListener;
+
+        private boolean stopped;
+
+        @SuppressWarnings("unchecked")
+        private Node(String nodeId) {
+            when(finnhubService.upstreamSymbols()).thenAnswer(invocation -> Set.copyOf(upstream));
+            doAnswer(invocation -> upstream.add(invocation.getArgument(0))).when(finnhubService).subscribeSymbol(anyString());
+            doAnswer(invocation -> upstream.remove(invocation.getArgument(0))).when(finnhubService).unsubscribeSymbol(anyString());
+
+            coordinator = new ClusterCoordinator(finnhubService, priceBroadcaster, quoteCacheService, subscriptionRegistry,
+                    new SymbolLingerService(new SimpleMeterRegistry(), 0, 0), new StringRedisTemplate(connectionFactory), connectionFactory,
+                    new ObjectMapper(), new SimpleMeterRegistry(), true, LEASE_MS, nodeId);
+
+            doAnswer(invocation -> {
+                flushListener = invocation.getArgument(0);
+                return null;
+            }).when(priceBroadcaster).addFlushListener(any(Consumer.class));
+        }
+
+        private void view(String symbol) {
+            subscriptionRegistry.addViewer(symbol, "session", coordinator::acquireUpstream);
+        }
+
+        private void unview(String symbol) {
+            subscriptionRegistry.removeViewer(symbol, "session", coordinator::releaseUpstream);
+        }
+
+        private void stop() {
+            if (!stopped) {
+                stopped = true;
+                coordinator.stop();
+            }
+        }
+    }
+}
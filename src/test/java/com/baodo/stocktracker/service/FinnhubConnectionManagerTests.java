@@ -0,0 +1,90 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.stub.StubFinnhubServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class FinnhubConnectionManagerTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<String> frames = new CopyOnWriteArrayList<>();
+
+    private StubFinnhubServer stub;
+
+    private FinnhubConnectionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        stub = new StubFinnhubServer().start(0);
+        manager = new FinnhubConnectionManager(meterRegistry, stub.webSocketUrl(), "test", 1, 50, 500, 1_000, 90_000, 300_000, 200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.stop();
+        stub.close();
+    }
+
+    @Test
+    void sendsSubscriptionsMadeBeforeTheSocketIsOpen() {
+        manager.subscribe("AAPL");
+        manager.subscribe("MSFT");
+        manager.start(() -> message -> frames.add(((TextMessage) message).getPayload()));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> stub.getReceivedFrames().size() == 2);
+        assertThat(stub.getReceivedFrames()).containsExactlyInAnyOrder(
+                FinnhubConnectionManager.subscribeMessage("AAPL"),
+                FinnhubConnectionManager.subscribeMessage("MSFT"));
+
+        stub.pushFrame("{\"type\":\"ping\"}");
+        await().atMost(Duration.ofSeconds(5)).until(() -> frames.contains("{\"type\":\"ping\"}"));
+    }
+
+    @Test
+    void sendsOnlyTheNetDiffOfChangesInsideOneDebounceWindow() {
+        manager.start(() -> message -> { });
+        await().atMost(Duration.ofSeconds(5)).until(manager::isConnected);
+
+        manager.subscribe("AAPL");
+        manager.unsubscribe("AAPL");
+        manager.subscribe("MSFT");
+        manager.subscribe("MSFT");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> manager.activeSymbols().contains("MSFT"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> !stub.getReceivedFrames().isEmpty());
+        assertThat(stub.getReceivedFrames()).containsExactly(FinnhubConnectionManager.subscribeMessage("MSFT"));
+        assertThat(meterRegistry.get("stocktracker.finnhub.ws.commands").tag("type", "subscribe").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("stocktracker.finnhub.ws.churn.suppressed").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void replaysTheActiveSetAfterTheServerDropsTheConnection() {
+        manager.start(() -> message -> { });
+        await().atMost(Duration.ofSeconds(5)).until(manager::isConnected);
+
+        manager.subscribe("AAPL");
+        manager.subscribe("MSFT");
+        await().atMost(Duration.ofSeconds(5)).until(() -> stub.getReceivedFrames().size() == 2);
+
+        stub.dropWebSockets();
+        await().atMost(Duration.ofSeconds(5)).pollInterval(Duration.ofMillis(10)).until(() -> !manager.isConnected());
+        manager.unsubscribe("MSFT");
+        stub.getReceivedFrames().clear();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> stub.getWebSocketConnections() == 2 && manager.isConnected());
+        await().atMost(Duration.ofSeconds(5)).until(() -> !stub.getReceivedFrames().isEmpty());
+        assertThat(stub.getReceivedFrames()).containsExactly(FinnhubConnectionManager.subscribeMessage("AAPL"));
+        assertThat(manager.activeSymbols()).containsExactly("AAPL");
+        assertThat(meterRegistry.get("stocktracker.finnhub.ws.reconnects").counter().count()).isGreaterThanOrEqualTo(1);
+    }
+}
@@ -0,0 +1,101 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.dto.response.SymbolQuoteResponse;
+import com.baodo.stocktracker.stub.StubFinnhubServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class FinnhubRequestSchedulerTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private FinnhubRequestScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    void pacesRequestsToTheStubServerWithinTheTokenBudget() {
+        scheduler = new FinnhubRequestScheduler(meterRegistry, 20, 1, 100, 5_000, 5_000);
+
+        try (StubFinnhubServer stub = new StubFinnhubServer().start(0)) {
+            WebClient client = WebClient.create(stub.baseUrl());
+
+            long start = System.nanoTime();
+            List<SymbolQuoteResponse> quotes = Flux.range(0, 10)
+                    .flatMap(i -> scheduler.schedule(FinnhubRequestScheduler.Priority.INTERACTIVE, "/quote", () -> client.get()
+                            .uri(uriBuilder -> uriBuilder.path("/quote").queryParam("symbol", "AAPL").build())
+                            .retrieve()
+                            .bodyToMono(SymbolQuoteResponse.class)))
+                    .collectList()
+                    .block();
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            assertThat(quotes).hasSize(10).allSatisfy(quote -> assertThat(quote.getC()).isPositive());
+            assertThat(stub.getQuoteRequests()).isEqualTo(10);
+            // One token up front, then 9 more at 20 per second
+            assertThat(elapsedMs).isGreaterThanOrEqualTo(400);
+            // The latency timer is stopped in doFinally, which can run just after block() has returned
+            await().atMost(Duration.ofSeconds(1)).untilAsserted(() ->
+                    assertThat(meterRegistry.get("stocktracker.finnhub.requests").tag("endpoint", "/quote").timer().count()).isEqualTo(10));
+        }
+    }
+
+    @Test
+    void releasesInteractiveRequestsBeforeQueuedBackgroundRequests() {
+        scheduler = new FinnhubRequestScheduler(meterRegistry, 10, 1, 100, 5_000, 5_000);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        scheduler.schedule(FinnhubRequestScheduler.Priority.BACKGROUND, "/company-news", () -> record(order, "background-0")).block();
+
+        List<Mono<Void>> queued = List.of(
+                scheduler.schedule(FinnhubRequestScheduler.Priority.BACKGROUND, "/company-news", () -> record(order, "background-1")),
+                scheduler.schedule(FinnhubRequestScheduler.Priority.BACKGROUND, "/company-news", () -> record(order, "background-2")),
+                scheduler.schedule(FinnhubRequestScheduler.Priority.INTERACTIVE, "/quote", () -> record(order, "interactive")));
+        Flux.merge(queued).blockLast();
+
+        assertThat(order).containsExactly("background-0", "interactive", "background-1", "background-2");
+    }
+
+    @Test
+    void shedsRequestsThatOverflowTheQueueOrMissTheirDeadline() {
+        scheduler = new FinnhubRequestScheduler(meterRegistry, 1, 1, 1, 100, 100);
+
+        scheduler.schedule(FinnhubRequestScheduler.Priority.INTERACTIVE, "/quote", () -> Mono.just("first")).block();
+
+        Mono<String> waiting = scheduler.schedule(FinnhubRequestScheduler.Priority.INTERACTIVE, "/quote", () -> Mono.just("second")).cache();
+        waiting.subscribe(value -> { }, ex -> { });
+
+        assertThatThrownBy(() -> scheduler.schedule(FinnhubRequestScheduler.Priority.INTERACTIVE, "/quote", () -> Mono.just("third")).block())
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThatThrownBy(waiting::block)
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("budget exceeded");
+
+        assertThat(meterRegistry.get("stocktracker.finnhub.requests.shed").tag("reason", "queue-full").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("stocktracker.finnhub.requests.shed").tag("reason", "deadline").counter().count()).isEqualTo(1);
+    }
+
+    private static Mono<Void> record(List<String> order, String name) {
+        return Mono.fromRunnable(() -> order.add(name));
+    }
+}
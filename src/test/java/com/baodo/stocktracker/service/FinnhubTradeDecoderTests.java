@@ -0,0 +1,71 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.MutableTrade;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FinnhubTradeDecoderTests {
+    private final FinnhubTradeDecoder decoder = new FinnhubTradeDecoder();
+
+    @Test
+    void decodesEveryTradeOfAFrameInAnyFieldOrder() throws IOException {
+        String frame = "{\"data\":[{\"p\":227.58,\"s\":\"AAPL\",\"t\":1727712000052,\"v\":0.0123},"
+                + "{\"c\":[\"1\"],\"v\":10,\"t\":1727712000113,\"s\":\"AMD\",\"p\":156.29}],\"type\":\"trade\"}";
+
+        assertThat(decoder.decode(frame)).isEqualTo(FinnhubTradeDecoder.FrameType.TRADE);
+        assertThat(decoder.getTradeCount()).isEqualTo(2);
+        assertTrade(decoder.getTrade(0), "AAPL", 227.58, 0.0123, 1727712000052L);
+        assertTrade(decoder.getTrade(1), "AMD", 156.29, 10, 1727712000113L);
+
+        // "type" after "data", from bytes
+        byte[] bytes = "{\"data\":[{\"s\":\"MSFT\",\"p\":431.27,\"t\":1727712000200,\"v\":5}],\"type\":\"trade\"}".getBytes(StandardCharsets.UTF_8);
+        assertThat(decoder.decode(bytes, 0, bytes.length)).isEqualTo(FinnhubTradeDecoder.FrameType.TRADE);
+        assertThat(decoder.getTradeCount()).isEqualTo(1);
+        assertTrade(decoder.getTrade(0), "MSFT", 431.27, 5, 1727712000200L);
+    }
+
+    @Test
+    void recognisesPingsAndOtherFrames() throws IOException {
+        assertThat(decoder.decode("{\"type\":\"ping\"}")).isEqualTo(FinnhubTradeDecoder.FrameType.PING);
+        assertThat(decoder.getTradeCount()).isZero();
+        assertThat(decoder.decode("{\"type\":\"error\",\"msg\":\"Subscribing to too many symbols\"}")).isEqualTo(FinnhubTradeDecoder.FrameType.OTHER);
+        assertThat(decoder.decode("[]")).isEqualTo(FinnhubTradeDecoder.FrameType.OTHER);
+    }
+
+    @Test
+    void dropsTradesWithoutSymbolPriceOrTimestamp() throws IOException {
+        String frame = "{\"type\":\"trade\",\"data\":["
+                + "{\"s\":\"AAPL\",\"t\":1727712000052,\"v\":1},"
+                + "{\"s\":\"AAPL\",\"p\":\"n/a\",\"t\":1727712000052,\"v\":1},"
+                + "{\"s\":\"AAPL\",\"p\":227.58,\"v\":1},"
+                + "{\"s\":\"AAPL\",\"p\":227.58,\"t\":null,\"v\":1},"
+                + "{\"p\":227.58,\"t\":1727712000052,\"v\":1},"
+                + "{\"s\":\"AAPL\",\"p\":0,\"t\":1727712000052,\"v\":1},"
+                + "{\"s\":\"NVDA\",\"p\":118.89,\"t\":1727712000034}]}";
+
+        decoder.decode(frame);
+
+        assertThat(decoder.getTradeCount()).isEqualTo(1);
+        assertTrade(decoder.getTrade(0), "NVDA", 118.89, 0, 1727712000034L);
+    }
+
+    @Test
+    void internsSymbolsAcrossFrames() throws IOException {
+        decoder.decode("{\"type\":\"trade\",\"data\":[{\"s\":\"BINANCE:BTCUSDT\",\"p\":65000.5,\"t\":1727712000000,\"v\":0.1}]}");
+        String first = decoder.getTrade(0).getSymbol();
+        decoder.decode("{\"type\":\"trade\",\"data\":[{\"s\":\"AAPL\",\"p\":1,\"t\":1,\"v\":1},{\"s\":\"BINANCE:BTCUSDT\",\"p\":65001,\"t\":1727712000001,\"v\":0.2}]}");
+
+        assertThat(decoder.getTrade(1).getSymbol()).isSameAs(first);
+    }
+
+    private static void assertTrade(MutableTrade trade, String symbol, double price, double volume, long timestamp) {
+        assertThat(trade.getSymbol()).isEqualTo(symbol);
+        assertThat(trade.getPrice()).isEqualTo(price);
+        assertThat(trade.getVolume()).isEqualTo(volume);
+        assertThat(trade.getTimestamp()).isEqualTo(timestamp);
+    }
+}
@@ -0,0 +1,44 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyMonitorTests {
+    private final LatencyMonitor latencyMonitor = new LatencyMonitor(new SimpleMeterRegistry());
+
+    @Test
+    void reportsPercentilesPerStage() {
+        for (int millis = 1; millis <= 100; millis++) {
+            latencyMonitor.record(LatencyMonitor.Stage.RECEIVE_BROKER, millis);
+        }
+        latencyMonitor.record(LatencyMonitor.Stage.EXCHANGE_RECEIVE, -5);
+
+        LatencyMonitor.Report report = latencyMonitor.report();
+
+        LatencyMonitor.StageLatency broker = report.stages().get("receive-broker");
+        assertThat(broker.count()).isEqualTo(100);
+        assertThat(broker.maxMs()).isEqualTo(100);
+        assertThat(broker.percentilesMs()).containsOnlyKeys("p50", "p90", "p99", "p99.9");
+        assertThat(broker.percentilesMs().get("p50")).isBetween(45.0, 55.0);
+        assertThat(report.stages().get("exchange-receive").maxMs()).isZero();
+        assertThat(report.stages()).containsKeys("receive-cache", "broker-socket");
+    }
+
+    @Test
+    void tracksRatesPerSymbolUntilRemoved() {
+        latencyMonitor.recordTrade("AAPL", symbol -> true);
+        latencyMonitor.recordUpdate("AAPL", symbol -> true);
+
+        assertThat(latencyMonitor.report().symbols()).containsOnlyKeys("AAPL");
+
+        latencyMonitor.remove("AAPL");
+        assertThat(latencyMonitor.report().symbols()).isEmpty();
+
+        // Late trades and updates of a released symbol do not bring it back
+        latencyMonitor.recordTrade("AAPL", symbol -> false);
+        latencyMonitor.recordUpdate("AAPL", symbol -> false);
+        assertThat(latencyMonitor.report().symbols()).isEmpty();
+    }
+}
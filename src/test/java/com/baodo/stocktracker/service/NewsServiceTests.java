@@ -0,0 +1,100 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.dto.response.NewsItemResponse;
+import com.baodo.stocktracker.stub.StubFinnhubServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NewsServiceTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private StubFinnhubServer stub;
+
+    private FinnhubRequestScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        stub = new StubFinnhubServer().start(0);
+        scheduler = new FinnhubRequestScheduler(meterRegistry, 100, 10, 100, 5_000, 5_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.stop();
+        stub.close();
+    }
+
+    @Test
+    void coalescesConcurrentRequestsIntoOneUpstreamRequest() {
+        NewsService newsService = newsService(60_000);
+        stub.setLatency(Duration.ofMillis(300));
+
+        List<Mono<List<NewsItemResponse>>> requests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            requests.add(newsService.getCompanyNews(i % 2 == 0 ? "AAPL" : "aapl"));
+        }
+        List<List<NewsItemResponse>> responses = Flux.merge(requests).collectList().block();
+
+        assertThat(responses).hasSize(10).allSatisfy(items -> assertThat(items).hasSize(20));
+        assertThat(stub.getNewsRequests()).isEqualTo(1);
+        assertThat(meterRegistry.get("stocktracker.news.requests").tag("result", "refresh").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("stocktracker.news.requests").tag("result", "coalesced").counter().count()).isEqualTo(9);
+
+        // Fresh enough: served from memory
+        assertThat(newsService.getCompanyNews("AAPL").block()).hasSize(20);
+        assertThat(stub.getNewsRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void refreshesOnlyFromTheNewestCachedArticleAndDeduplicates() {
+        NewsService newsService = newsService(0);
+        ZoneId zone = ZoneId.systemDefault();
+
+        List<NewsItemResponse> first = newsService.getCompanyNews("AAPL").block();
+        List<NewsItemResponse> second = newsService.getCompanyNews("AAPL").block();
+
+        LocalDate newest = LocalDate.ofInstant(Instant.ofEpochSecond(first.get(0).getDatetime()), zone);
+        assertThat(stub.getNewsFromDates()).containsExactly(LocalDate.now(zone).minusDays(3).toString(), newest.toString());
+        // The stub returns the same 20 article ids every time
+        assertThat(second).hasSize(20).extracting(NewsItemResponse::getId)
+                .containsExactlyInAnyOrderElementsOf(first.stream().map(NewsItemResponse::getId).toList());
+    }
+
+    @Test
+    void servesTheCachedCopyWhenARefreshFails() {
+        NewsService newsService = newsService(0);
+        List<NewsItemResponse> cached = newsService.getCompanyNews("AAPL").block();
+
+        stub.setFailing(true);
+
+        assertThat(newsService.getCompanyNews("AAPL").block()).isEqualTo(cached);
+        assertThat(stub.getNewsRequests()).isEqualTo(2);
+    }
+
+    private NewsService newsService(long refreshIntervalMs) {
+        NewsService newsService = new NewsService(WebClient.create(stub.baseUrl()), scheduler, meterRegistry, Tracer.NOOP);
+        ReflectionTestUtils.setField(newsService, "apiKey", "test");
+        ReflectionTestUtils.setField(newsService, "refreshIntervalMs", refreshIntervalMs);
+        ReflectionTestUtils.setField(newsService, "ttlMinutes", 30);
+        ReflectionTestUtils.setField(newsService, "maxSymbols", 100);
+        ReflectionTestUtils.setField(newsService, "maxItemsPerSymbol", 200);
+        newsService.init();
+        return newsService;
+    }
+}
@@ -0,0 +1,86 @@
+package com.baodo.stocktracker.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+class PriceBroadcasterTests {
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+
+    private final PriceBroadcaster priceBroadcaster = new PriceBroadcaster(messagingTemplate, mock(LatencyMonitor.class));
+
+    @Test
+    void sequenceGrowsByOnePerSentUpdate() {
+        assertThat(priceBroadcaster.sequenceOf("AAPL")).isZero();
+        assertThat(priceBroadcaster.lastPublishedPrice("AAPL")).isNull();
+
+        priceBroadcaster.publish("AAPL", 227.5, 0, symbol -> true);
+        priceBroadcaster.publish("AAPL", 227.6, 0, symbol -> true);
+        priceBroadcaster.flush();
+        priceBroadcaster.flush();
+        priceBroadcaster.publish("AAPL", 227.7, 0, symbol -> true);
+        priceBroadcaster.flush();
+
+        // Two ticks conflated into one update, so two updates in total
+        assertThat(priceBroadcaster.sequenceOf("AAPL")).isEqualTo(2);
+        assertThat(priceBroadcaster.lastPublishedPrice("AAPL")).isEqualTo(227.7);
+        var updates = inOrder(messagingTemplate);
+        updates.verify(messagingTemplate).convertAndSend("/topic/priceAAPL", (Object) 227.6, Map.<String, Object>of(PriceBroadcaster.SEQUENCE_HEADER, 1L));
+        updates.verify(messagingTemplate).convertAndSend("/topic/priceAAPL", (Object) 227.7, Map.<String, Object>of(PriceBroadcaster.SEQUENCE_HEADER, 2L));
+    }
+
+    @Test
+    void snapshotSequenceIsNeverAheadOfItsPrice() throws InterruptedException {
+        // Update n carries price n, so a snapshot reading (seq, price) must see price >= seq
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> violation = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                long seq = priceBroadcaster.sequenceOf("AAPL");
+                Double price = priceBroadcaster.lastPublishedPrice("AAPL");
+                if (seq > 0 && (price == null || price < seq)) {
+                    violation.compareAndSet(null, "seq " + seq + " with price " + price);
+                }
+            }
+        });
+        reader.start();
+
+        for (int update = 1; update <= 20_000; update++) {
+            priceBroadcaster.publish("AAPL", update, 0, symbol -> true);
+            priceBroadcaster.flush();
+        }
+        running.set(false);
+        reader.join();
+
+        assertThat(violation.get()).isNull();
+        assertThat(priceBroadcaster.sequenceOf("AAPL")).isEqualTo(20_000);
+    }
+
+    @Test
+    void restartsTheSequenceOfARemovedSymbol() {
+        priceBroadcaster.publish("AAPL", 227.5, 0, symbol -> true);
+        priceBroadcaster.flush();
+        priceBroadcaster.remove("AAPL");
+
+        assertThat(priceBroadcaster.sequenceOf("AAPL")).isZero();
+        priceBroadcaster.publish("AAPL", 228.0, 0, symbol -> true);
+        priceBroadcaster.flush();
+        assertThat(priceBroadcaster.sequenceOf("AAPL")).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotRecreateTheSlotOfASymbolThatIsNoLongerLive() {
+        priceBroadcaster.publish("AAPL", 227.5, 0, symbol -> false);
+        priceBroadcaster.flush();
+
+        assertThat(priceBroadcaster.sequenceOf("AAPL")).isZero();
+        assertThat(priceBroadcaster.lastPublishedPrice("AAPL")).isNull();
+    }
+}
@@ -0,0 +1,167 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.config.RedisConfiguration;
+import com.baodo.stocktracker.config.TracingTier;
+import com.baodo.stocktracker.model.CachedQuote;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.spy;
+
+class QuoteCacheServiceTests {
+    private static final long TTL_SECONDS = 600;
+
+    private static RedisServer redisServer;
+
+    private static LettuceConnectionFactory connectionFactory;
+
+    private static RedisTemplate<String, CachedQuote> quoteRedisTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RedisService redisService;
+
+    private QuoteCacheService quoteCacheService;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        quoteRedisTemplate = new RedisConfiguration().quoteRedisTemplate(connectionFactory);
+        quoteRedisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (var connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        RedisTemplate<String, Object> redisTemplate = new RedisConfiguration().redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        redisService = spy(new RedisService(redisTemplate, quoteRedisTemplate, Tracer.NOOP, meterRegistry, TracingTier.CONTROL_PLANE, TTL_SECONDS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (quoteCacheService != null) {
+            quoteCacheService.stop();
+        }
+    }
+
+    @Test
+    void writesQuotesBehindToRedisWithATtlAndReadsThemBackInOneBatch() {
+        quoteCacheService = start(60_000);
+        CachedQuote apple = CachedQuote.ofTrade(227.58, 100, 1_727_712_000_000L);
+        CachedQuote microsoft = CachedQuote.ofTrade(431.27, 50, 1_727_712_000_000L);
+        quoteCacheService.put("AAPL", apple);
+        quoteCacheService.put("MSFT", microsoft);
+
+        assertThat(quoteRedisTemplate.hasKey("AAPL")).isFalse();
+        quoteCacheService.flush();
+        assertThat(quoteRedisTemplate.opsForValue().get("AAPL")).isEqualTo(apple);
+        assertThat(quoteRedisTemplate.getExpire("AAPL", TimeUnit.SECONDS)).isBetween(1L, TTL_SECONDS);
+
+        // A fresh L1 falls through to Redis for everything but what it holds
+        quoteCacheService.stop();
+        quoteCacheService = start(60_000);
+        quoteCacheService.put("NVDA", CachedQuote.ofTrade(118.89, 10, 1_727_712_000_000L));
+        Map<String, CachedQuote> quotes = quoteCacheService.getAll(List.of("AAPL", "MSFT", "NVDA", "TSLA"));
+
+        assertThat(quotes).containsEntry("AAPL", apple).containsEntry("MSFT", microsoft).containsKey("NVDA").doesNotContainKey("TSLA");
+        assertThat(meterRegistry.get("stocktracker.quote.cache.requests").tag("result", "hit").tag("tier", "l2").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("stocktracker.quote.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void evictionIsOrderedAfterTheFlushAlreadyWritingTheSymbol() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch evicted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            flushing.countDown();
+            evicted.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(redisService).saveQuotes(anyMap());
+        quoteCacheService = start(20);
+
+        quoteCacheService.put("AAPL", CachedQuote.ofTrade(227.58, 100, 1_727_712_000_000L));
+        assertThat(flushing.await(5, TimeUnit.SECONDS)).isTrue();
+        // The write-behind thread has drained AAPL but not written it yet
+        quoteCacheService.evict("AAPL");
+        evicted.countDown();
+
+        InOrder order = inOrder(redisService);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            order.verify(redisService).saveQuotes(anyMap());
+            order.verify(redisService).delete("AAPL");
+        });
+        assertThat(quoteRedisTemplate.hasKey("AAPL")).isFalse();
+        assertThat(quoteCacheService.get("AAPL")).isNull();
+    }
+
+    @Test
+    void tradesOnlyCreateQuotesForLiveSymbols() {
+        quoteCacheService = start(60_000);
+
+        quoteCacheService.putTrade("AAPL", 227.58, 100, 1_727_712_000_000L, symbol -> false);
+        assertThat(quoteCacheService.get("AAPL")).isNull();
+
+        quoteCacheService.putTrade("AAPL", 227.58, 100, 1_727_712_000_000L, symbol -> true);
+        // A quote that exists is updated whatever the predicate says
+        quoteCacheService.putTrade("AAPL", 227.61, 50, 1_727_712_001_000L, symbol -> false);
+        assertThat(quoteCacheService.get("AAPL").getPrice()).isEqualTo(227.61);
+        assertThat(quoteCacheService.get("AAPL").getDayLow()).isEqualTo(227.58);
+
+        // Once evicted, a late trade of a released symbol does not bring it back in either tier
+        quoteCacheService.evict("AAPL");
+        quoteCacheService.putTrade("AAPL", 227.64, 10, 1_727_712_002_000L, symbol -> false);
+        quoteCacheService.flush();
+        assertThat(quoteCacheService.get("AAPL")).isNull();
+        assertThat(quoteRedisTemplate.hasKey("AAPL")).isFalse();
+    }
+
+    private QuoteCacheService start(long flushIntervalMs) {
+        QuoteCacheService service = new QuoteCacheService(redisService, meterRegistry);
+        ReflectionTestUtils.setField(service, "maxSize", 100);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", flushIntervalMs);
+        service.start();
+        return service;
+    }
+}
@@ -0,0 +1,81 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.dto.response.SymbolQuoteResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuoteLookupServiceTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final FinnhubService finnhubService = mock(FinnhubService.class);
+
+    private QuoteLookupService lookupService;
+
+    @BeforeEach
+    void setUp() {
+        lookupService = new QuoteLookupService(finnhubService, meterRegistry, 30, 100);
+        lookupService.init();
+    }
+
+    @Test
+    void coalescesConcurrentLookupsOntoOneRequest() {
+        Sinks.One<SymbolQuoteResponse> response = Sinks.one();
+        AtomicInteger subscriptions = new AtomicInteger();
+        when(finnhubService.getQuote("AAPL")).thenReturn(response.asMono().doOnSubscribe(subscription -> subscriptions.incrementAndGet()));
+
+        Mono<SymbolQuoteResponse> first = lookupService.lookup("AAPL");
+        Mono<SymbolQuoteResponse> second = lookupService.lookup("AAPL");
+        first.subscribe();
+        second.subscribe();
+        response.tryEmitValue(quote(227.58));
+
+        assertThat(first.block().getC()).isEqualTo(227.58);
+        assertThat(second.block().getC()).isEqualTo(227.58);
+        assertThat(subscriptions).hasValue(1);
+        assertThat(lookupCount("fetched")).isEqualTo(1);
+        assertThat(lookupCount("coalesced")).isEqualTo(1);
+
+        // Once the request completes, the next lookup goes to Finnhub again
+        when(finnhubService.getQuote("AAPL")).thenReturn(Mono.just(quote(228.0)));
+        assertThat(lookupService.lookup("AAPL").block().getC()).isEqualTo(228.0);
+        assertThat(lookupCount("fetched")).isEqualTo(2);
+    }
+
+    @Test
+    void remembersSymbolsFinnhubReportsAsInvalid() {
+        when(finnhubService.getQuote("NOPE")).thenReturn(Mono.just(quote(0.0)));
+
+        assertThatThrownBy(() -> lookupService.lookup("NOPE").block())
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+        assertThatThrownBy(() -> lookupService.lookup("NOPE").block())
+                .isInstanceOf(ResponseStatusException.class);
+
+        verify(finnhubService, times(1)).getQuote("NOPE");
+        assertThat(lookupCount("negative-cache")).isEqualTo(1);
+    }
+
+    private double lookupCount(String outcome) {
+        return meterRegistry.get("stocktracker.quote.lookups").tag("outcome", outcome).counter().count();
+    }
+
+    private static SymbolQuoteResponse quote(double price) {
+        SymbolQuoteResponse quote = new SymbolQuoteResponse();
+        quote.setC(price);
+        quote.setT(price == 0.0 ? 0L : 1727712000L);
+        return quote;
+    }
+}
@@ -0,0 +1,127 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StompOutboundPolicyTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<String> written = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    private StompOutboundPolicy policy;
+
+    @AfterEach
+    void tearDown() {
+        released.countDown();
+        policy.stop();
+    }
+
+    @Test
+    void keepsOnlyTheLatestPricePerSymbolWhileTheClientIsBehind() throws Exception {
+        policy = new StompOutboundPolicy(meterRegistry, new LatencyMonitor(meterRegistry), 3, 100, 60_000, 1_000, StompOutboundPolicy.SlowConsumerAction.DISCONNECT, 1);
+        WebSocketSession session = connect(blockingSession());
+
+        session.sendMessage(frame("/topic/news", "first"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> written.size() == 1);
+        // The client stalls on the next write
+        session.sendMessage(frame("/topic/news", "stalled"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> policy.sessionStats().get("s1").queueDepth() == 0);
+        for (int i = 1; i <= 5; i++) {
+            session.sendMessage(frame("/topic/priceAAPL", "AAPL-" + i));
+            session.sendMessage(frame("/topic/priceMSFT", "MSFT-" + i));
+        }
+        session.sendMessage(frame("/topic/news", "second"));
+        session.sendMessage(frame("/topic/news", "third"));
+
+        released.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> written.size() == 5);
+        assertThat(written).containsExactly("first", "stalled", "AAPL-5", "MSFT-5", "second");
+        assertThat(meterRegistry.get("stocktracker.ws.outbound.frames").tag("result", "conflated").counter().count()).isEqualTo(8);
+        assertThat(meterRegistry.get("stocktracker.ws.outbound.frames").tag("result", "dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void downgradedSessionConflatesPricesButSendsEverySnapshot() throws Exception {
+        policy = new StompOutboundPolicy(meterRegistry, new LatencyMonitor(meterRegistry), 100, 100, 60_000, 200, StompOutboundPolicy.SlowConsumerAction.DOWNGRADE, 1);
+        WebSocketSession session = connect(blockingSession());
+        ((ConflatingWebSocketSession) session).downgrade();
+        released.countDown();
+
+        session.sendMessage(frame("/topic/snapshot/s1", "AAPL-snapshot"));
+        session.sendMessage(frame("/topic/priceAAPL", "AAPL-1"));
+        session.sendMessage(frame("/topic/snapshot/s1", "MSFT-snapshot"));
+        session.sendMessage(frame("/topic/priceAAPL", "AAPL-2"));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> written.size() == 3);
+        assertThat(written).containsExactly("AAPL-snapshot", "AAPL-2", "MSFT-snapshot");
+        assertThat(meterRegistry.get("stocktracker.ws.outbound.frames").tag("result", "conflated").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void disconnectsASessionThatStaysCongested() throws Exception {
+        policy = new StompOutboundPolicy(meterRegistry, new LatencyMonitor(meterRegistry), 100, 2, 0, 1_000, StompOutboundPolicy.SlowConsumerAction.DISCONNECT, 1);
+        WebSocketSession delegate = blockingSession();
+        WebSocketSession session = connect(delegate);
+
+        for (int i = 0; i < 5; i++) {
+            session.sendMessage(frame("/topic/news", "story-" + i));
+        }
+
+        verify(delegate).close(any(CloseStatus.class));
+        assertThat(meterRegistry.get("stocktracker.ws.outbound.slow.consumers").tag("action", "disconnect").counter().count()).isEqualTo(1);
+    }
+
+    private WebSocketSession connect(WebSocketSession delegate) throws Exception {
+        AtomicReference<WebSocketSession> decorated = new AtomicReference<>();
+        WebSocketHandler handler = mock(WebSocketHandler.class);
+        doAnswer(invocation -> {
+            decorated.set(invocation.getArgument(0));
+            return null;
+        }).when(handler).afterConnectionEstablished(any());
+
+        policy.decorate(handler).afterConnectionEstablished(delegate);
+        return decorated.get();
+    }
+
+    private WebSocketSession blockingSession() throws Exception {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("s1");
+        when(delegate.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            String payload = ((TextMessage) invocation.getArgument(0)).getPayload();
+            if (!written.isEmpty()) {
+                released.await(5, TimeUnit.SECONDS);
+            }
+            written.add(payload.substring(payload.indexOf("\n\n") + 2, payload.length() - 1));
+            return null;
+        }).when(delegate).sendMessage(any(WebSocketMessage.class));
+        return delegate;
+    }
+
+    private static TextMessage frame(String destination, String body) {
+        return new TextMessage("MESSAGE\ndestination:" + destination + "\ncontent-type:text/plain\n\n" + body + "\u0000");
+    }
+}
@@ -0,0 +1,96 @@
+package com.baodo.stocktracker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscriptionRegistryTests {
+    private static final int THREADS = 16;
+
+    private final SubscriptionRegistry registry = new SubscriptionRegistry();
+
+    private final Queue<String> firstViewers = new ConcurrentLinkedQueue<>();
+
+    private final Queue<String> lastViewers = new ConcurrentLinkedQueue<>();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void firesFirstAndLastViewerCallbacksOnceUnderConcurrentSubscribers() throws Exception {
+        runConcurrently(session -> registry.addViewer("AAPL", "session-" + session, firstViewers::add));
+
+        assertThat(firstViewers).containsExactly("AAPL");
+        assertThat(registry.viewerCount("AAPL")).isEqualTo(THREADS);
+
+        runConcurrently(session -> registry.removeViewer("AAPL", "session-" + session, lastViewers::add));
+
+        assertThat(lastViewers).containsExactly("AAPL");
+        assertThat(registry.viewerCount("AAPL")).isZero();
+        assertThat(registry.activeSymbols()).isEmpty();
+    }
+
+    @Test
+    void pairsEveryFirstViewerWithOneLastViewerUnderChurn() throws Exception {
+        runConcurrently(session -> {
+            for (int i = 0; i < 1_000; i++) {
+                registry.addViewer("AAPL", "session-" + session, firstViewers::add);
+                registry.removeViewer("AAPL", "session-" + session, lastViewers::add);
+            }
+        });
+
+        assertThat(firstViewers).isNotEmpty().hasSameSizeAs(lastViewers);
+        assertThat(registry.viewerCount("AAPL")).isZero();
+        assertThat(registry.symbolsOf("session-0")).isEmpty();
+    }
+
+    @Test
+    void removeSessionReleasesEverySymbolOfTheSession() {
+        registry.addViewer("AAPL", "s1", firstViewers::add);
+        registry.addViewer("MSFT", "s1", firstViewers::add);
+        registry.addViewer("NVDA", "s1", firstViewers::add);
+        registry.addViewer("MSFT", "s2", firstViewers::add);
+
+        assertThat(registry.removeSession("s1", lastViewers::add)).containsExactlyInAnyOrder("AAPL", "MSFT", "NVDA");
+
+        // MSFT is still viewed by s2
+        assertThat(lastViewers).containsExactlyInAnyOrder("AAPL", "NVDA");
+        assertThat(registry.activeSymbols()).containsExactly("MSFT");
+        assertThat(registry.viewersOf("MSFT")).containsExactly("s2");
+        assertThat(registry.symbolsOf("s1")).isEmpty();
+        assertThat(registry.removeSession("s1", lastViewers::add)).isEmpty();
+    }
+
+    private void runConcurrently(IntConsumer task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int session = 0; session < THREADS; session++) {
+            int id = session;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.accept(id);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+}
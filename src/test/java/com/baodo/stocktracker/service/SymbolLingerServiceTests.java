@@ -0,0 +1,85 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class SymbolLingerServiceTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<String> tornDown = new CopyOnWriteArrayList<>();
+
+    private SymbolLingerService lingerService;
+
+    @AfterEach
+    void tearDown() {
+        lingerService.stop();
+    }
+
+    @Test
+    void reclaimsALingeringSymbolWithoutTearingItDown() {
+        lingerService = new SymbolLingerService(meterRegistry, 30, 10);
+        lingerService.start();
+
+        lingerService.linger("AAPL", tornDown::add);
+
+        assertThat(lingerService.reclaim("AAPL")).isTrue();
+        assertThat(lingerService.reclaim("AAPL")).isFalse();
+        assertThat(tornDown).isEmpty();
+        assertThat(meterRegistry.get("stocktracker.symbols.linger").tag("outcome", "warm-resubscribe").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsTheLongestAbandonedSymbolBeyondTheCap() throws InterruptedException {
+        lingerService = new SymbolLingerService(meterRegistry, 30, 2);
+        lingerService.start();
+
+        lingerService.linger("AAPL", tornDown::add);
+        Thread.sleep(5);
+        lingerService.linger("MSFT", tornDown::add);
+        Thread.sleep(5);
+        lingerService.linger("TSLA", tornDown::add);
+
+        assertThat(tornDown).containsExactly("AAPL");
+        assertThat(lingerService.isLingering("MSFT")).isTrue();
+        assertThat(lingerService.isLingering("TSLA")).isTrue();
+        assertThat(meterRegistry.get("stocktracker.symbols.linger").tag("outcome", "evicted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void tearsDownSymbolsOnceTheLingerPeriodExpires() {
+        lingerService = new SymbolLingerService(meterRegistry, 1, 10);
+        lingerService.start();
+
+        lingerService.linger("AAPL", tornDown::add);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> tornDown.contains("AAPL"));
+        assertThat(lingerService.reclaim("AAPL")).isFalse();
+        assertThat(meterRegistry.get("stocktracker.symbols.linger").tag("outcome", "expired").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void runsTheTeardownAfterTheSymbolLeftTheLingerSet() throws InterruptedException {
+        lingerService = new SymbolLingerService(meterRegistry, 30, 1);
+        lingerService.start();
+
+        // The teardown may touch the linger set, e.g. to linger another symbol
+        lingerService.linger("AAPL", symbol -> {
+            assertThat(lingerService.isLingering(symbol)).isFalse();
+            assertThat(lingerService.reclaim(symbol)).isFalse();
+            tornDown.add(symbol);
+        });
+        Thread.sleep(5);
+        lingerService.linger("MSFT", tornDown::add);
+
+        assertThat(tornDown).containsExactly("AAPL");
+        assertThat(lingerService.isLingering("MSFT")).isTrue();
+    }
+}
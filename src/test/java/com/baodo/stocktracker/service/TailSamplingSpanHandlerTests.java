@@ -0,0 +1,75 @@
+package com.baodo.stocktracker.service;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import brave.sampler.Sampler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TailSamplingSpanHandlerTests {
+    private final List<String> exported = new CopyOnWriteArrayList<>();
+
+    private final SpanHandler exporter = new SpanHandler() {
+        @Override
+        public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+            exported.add(span.name());
+            return true;
+        }
+    };
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Tracing tracing = Tracing.newBuilder()
+            .sampler(Sampler.ALWAYS_SAMPLE)
+            .addSpanHandler(new TailSamplingSpanHandler(() -> List.of(exporter), 200, 100, meterRegistry))
+            .addSpanHandler(exporter)
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        tracing.close();
+    }
+
+    @Test
+    void dropsFastSuccessfulTraces() {
+        Tracer tracer = tracing.tracer();
+        Span root = tracer.newTrace().name("root").start();
+        tracer.newChild(root.context()).name("child").start().finish();
+        root.finish();
+
+        assertThat(exported).isEmpty();
+        assertThat(meterRegistry.get("stocktracker.tracing.tail.traces").tag("decision", "dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsTheWholeTraceWhenAnySpanFailed() {
+        Tracer tracer = tracing.tracer();
+        Span root = tracer.newTrace().name("root").start();
+        tracer.newChild(root.context()).name("child").start().error(new IllegalStateException("boom")).finish();
+        root.finish();
+        // Finishes after the decision and follows it
+        tracer.newChild(root.context()).name("late").start().finish();
+
+        assertThat(exported).containsExactly("child", "root", "late");
+        assertThat(meterRegistry.get("stocktracker.tracing.tail.traces").tag("decision", "kept").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsSlowTraces() {
+        Tracer tracer = tracing.tracer();
+        long start = System.currentTimeMillis() * 1000;
+        tracer.newTrace().name("slow").start(start).finish(start + 250_000);
+
+        assertThat(exported).containsExactly("slow");
+    }
+}
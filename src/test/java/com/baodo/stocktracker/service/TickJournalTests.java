@@ -0,0 +1,86 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.Tick;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TickJournalTests {
+    // 1 MB segments
+    private static final long RECORDS_PER_SEGMENT = 1024 * 1024 / TickJournal.RECORD_SIZE;
+
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRangesAcrossSegmentsAndRestarts() throws IOException {
+        TickJournal journal = open(16);
+        long count = RECORDS_PER_SEGMENT + 1000;
+        for (long i = 0; i < count; i++) {
+            journal.append(i % 2 == 0 ? "AAPL" : "MSFT", 100 + i, 1, START + i * 10);
+        }
+
+        // Crosses the first segment boundary
+        long from = START + (RECORDS_PER_SEGMENT - 10) * 10;
+        List<Tick> ticks = journal.ticks("AAPL", from, from + 190, 1000);
+        assertThat(ticks).hasSize(10).allMatch(tick -> tick.symbol().equals("AAPL"));
+        assertThat(ticks.get(0)).isEqualTo(new Tick("AAPL", 100 + RECORDS_PER_SEGMENT - 10, 1, from));
+        assertThat(journal.ticks("MSFT", START, START + 100, 3)).extracting(Tick::timestamp).containsExactly(START + 10, START + 30, START + 50);
+        journal.close();
+
+        TickJournal reopened = open(16);
+        assertThat(reopened.ticks("AAPL", from, from + 190, 1000)).isEqualTo(ticks);
+        reopened.append("AAPL", 1, 1, START + count * 10);
+        assertThat(reopened.ticks("AAPL", START + count * 10, Long.MAX_VALUE, 10)).containsExactly(new Tick("AAPL", 1, 1, START + count * 10));
+        reopened.close();
+    }
+
+    @Test
+    void dropsTheOldestSegmentsBeyondRetention() throws IOException {
+        TickJournal journal = open(2);
+        for (long i = 0; i < RECORDS_PER_SEGMENT * 2 + 1; i++) {
+            journal.append("AAPL", 100, 1, START + i);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(path -> path.toString().endsWith(".seg")).count()).isEqualTo(2);
+        }
+        assertThat(journal.ticks("AAPL", START, START + RECORDS_PER_SEGMENT - 1, 10)).isEmpty();
+        assertThat(journal.ticks("AAPL", START + RECORDS_PER_SEGMENT, Long.MAX_VALUE, 10)).first()
+                .extracting(Tick::timestamp).isEqualTo(START + RECORDS_PER_SEGMENT);
+        journal.close();
+    }
+
+    @Test
+    void prunesTheIndexOfDroppedSegments() throws IOException {
+        TickJournal journal = open(2);
+        // One index entry per second of trades, 1 ms apart
+        for (long i = 0; i < RECORDS_PER_SEGMENT * 6; i++) {
+            journal.append("AAPL", 100, 1, START + i);
+        }
+
+        long entriesPerSegment = RECORDS_PER_SEGMENT / 1000 + 1;
+        assertThat(journal.indexSize("AAPL")).isLessThanOrEqualTo((int) (entriesPerSegment * 2 + 1));
+        long firstKept = START + RECORDS_PER_SEGMENT * 4;
+        assertThat(journal.ticks("AAPL", START, Long.MAX_VALUE, 1)).extracting(Tick::timestamp).containsExactly(firstKept);
+        assertThat(journal.ticks("AAPL", firstKept + 10, firstKept + 12, 10)).extracting(Tick::timestamp)
+                .containsExactly(firstKept + 10, firstKept + 11, firstKept + 12);
+        journal.close();
+    }
+
+    private TickJournal open(int maxSegments) throws IOException {
+        TickJournal journal = new TickJournal(new SimpleMeterRegistry(), true, directory.toString(), 1, maxSegments, 1000);
+        journal.open();
+        return journal;
+    }
+}
@@ -0,0 +1,58 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TradePipelineTests {
+    private final MarketStateService marketStateService = mock(MarketStateService.class);
+
+    private final QuoteCacheService quoteCacheService = mock(QuoteCacheService.class);
+
+    private final PriceBroadcaster priceBroadcaster = mock(PriceBroadcaster.class);
+
+    private final FinnhubConnectionManager connectionManager = mock(FinnhubConnectionManager.class);
+
+    private final LatencyMonitor latencyMonitor = mock(LatencyMonitor.class);
+
+    private final TradePipeline pipeline = new TradePipeline(new SimpleMeterRegistry(), marketStateService, quoteCacheService,
+            priceBroadcaster, connectionManager, latencyMonitor, mock(TickJournal.class), 64,
+            TradeRingBuffer.WaitStrategy.SLEEPING, TradeRingBuffer.WaitStrategy.SLEEPING,
+            TradeRingBuffer.WaitStrategy.SLEEPING, TradeRingBuffer.WaitStrategy.SLEEPING);
+
+    @AfterEach
+    void tearDown() {
+        pipeline.stop();
+    }
+
+    @Test
+    void dropsTradesOfSymbolsNoLongerSubscribed() {
+        when(connectionManager.isSubscribed("AAPL")).thenReturn(true);
+        pipeline.start();
+
+        long now = System.currentTimeMillis();
+        pipeline.publish("MSFT", 431.27, 5, now, now);
+        pipeline.publish("AAPL", 227.58, 10, now, now);
+
+        verify(marketStateService, timeout(5_000)).onTrade(eq("AAPL"), eq(227.58), eq(10.0), eq(now), any());
+        verify(quoteCacheService, timeout(5_000)).putTrade(eq("AAPL"), eq(227.58), eq(10.0), eq(now), any());
+        verify(priceBroadcaster, timeout(5_000)).publish(eq("AAPL"), eq(227.58), anyLong(), any());
+        verify(latencyMonitor, timeout(5_000)).recordTrade(eq("AAPL"), any());
+
+        verify(marketStateService, after(100).never()).onTrade(eq("MSFT"), anyDouble(), anyDouble(), anyLong(), any());
+        verify(quoteCacheService, never()).putTrade(eq("MSFT"), anyDouble(), anyDouble(), anyLong(), any());
+        verify(priceBroadcaster, never()).publish(eq("MSFT"), anyDouble(), anyLong(), any());
+        verify(latencyMonitor, never()).recordTrade(eq("MSFT"), any());
+    }
+}
@@ -0,0 +1,74 @@
+package com.baodo.stocktracker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class TradeRingBufferTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TradeRingBuffer ringBuffer;
+
+    @AfterEach
+    void tearDown() {
+        if (ringBuffer != null) {
+            ringBuffer.stop();
+        }
+    }
+
+    @Test
+    void everyStageSeesEveryEventInOrderAcrossWraps() {
+        ringBuffer = new TradeRingBuffer(8, meterRegistry);
+        List<Long> fast = new CopyOnWriteArrayList<>();
+        List<Long> slow = new CopyOnWriteArrayList<>();
+        AtomicInteger batches = new AtomicInteger();
+        ringBuffer.addConsumer("fast", (event, sequence, endOfBatch) -> {
+            fast.add(event.getTimestamp());
+            if (endOfBatch) {
+                batches.incrementAndGet();
+            }
+        }, TradeRingBuffer.WaitStrategy.BUSY_SPIN);
+        ringBuffer.addConsumer("slow", (event, sequence, endOfBatch) -> {
+            slow.add(event.getTimestamp());
+            if (sequence % 10 == 0) {
+                sleep();
+            }
+        }, TradeRingBuffer.WaitStrategy.SLEEPING);
+        ringBuffer.start();
+
+        for (int i = 0; i < 200; i++) {
+            ringBuffer.publish("AAPL", 227.5, 1, i, i);
+        }
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> slow.size() == 200 && fast.size() == 200);
+        List<Long> expected = LongStream.range(0, 200).boxed().toList();
+        assertThat(fast).isEqualTo(expected);
+        assertThat(slow).isEqualTo(expected);
+        assertThat(batches.get()).isPositive();
+        assertThat(meterRegistry.get("stocktracker.trades.ring.full").counter().count()).isPositive();
+        assertThat(ringBuffer.occupancy()).isZero();
+    }
+
+    @Test
+    void rejectsCapacityThatIsNotAPowerOfTwo() {
+        assertThatThrownBy(() -> new TradeRingBuffer(100, new SimpleMeterRegistry())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.SymbolPriceUpdate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WatchlistServiceTests {
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+
+    private final PriceBroadcaster priceBroadcaster = mock(PriceBroadcaster.class);
+
+    private final SubscriptionRegistry subscriptionRegistry = new SubscriptionRegistry();
+
+    private final WatchlistService watchlistService = new WatchlistService(messagingTemplate, priceBroadcaster,
+            subscriptionRegistry, new SimpleMeterRegistry(), 100, 8);
+
+    @Test
+    void sendsOneCombinedFramePerWatchlistSession() {
+        subscriptionRegistry.addViewer("AAPL", "watcher", symbol -> { });
+        subscriptionRegistry.addViewer("MSFT", "watcher", symbol -> { });
+        subscriptionRegistry.addViewer("AAPL", "single", symbol -> { });
+        watchlistService.addSession("watcher");
+        when(priceBroadcaster.sequenceOf("AAPL")).thenReturn(7L);
+        when(priceBroadcaster.sequenceOf("MSFT")).thenReturn(3L);
+
+        watchlistService.onFlush(Map.of("AAPL", 227.5, "MSFT", 410.0, "TSLA", 250.0));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SymbolPriceUpdate>> batch = ArgumentCaptor.forClass(List.class);
+        verify(messagingTemplate).convertAndSend(eq(WatchlistService.UPDATES_DESTINATION_PREFIX + "watcher"), batch.capture());
+        assertThat(batch.getValue()).containsExactlyInAnyOrder(
+                new SymbolPriceUpdate("AAPL", 7, 227.5), new SymbolPriceUpdate("MSFT", 3, 410.0));
+        verify(messagingTemplate, never()).convertAndSend(eq(WatchlistService.UPDATES_DESTINATION_PREFIX + "single"), any(Object.class));
+    }
+
+    @Test
+    void stopsUpdatingARemovedSession() {
+        subscriptionRegistry.addViewer("AAPL", "watcher", symbol -> { });
+        watchlistService.addSession("watcher");
+        watchlistService.removeSession("watcher");
+
+        watchlistService.onFlush(Map.of("AAPL", 227.5));
+
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+}
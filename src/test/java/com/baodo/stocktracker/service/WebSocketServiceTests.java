@@ -0,0 +1,92 @@
+package com.baodo.stocktracker.service;
+
+import com.baodo.stocktracker.model.SymbolSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class WebSocketServiceTests {
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+
+    private final PriceBroadcaster priceBroadcaster = new PriceBroadcaster(mock(SimpMessagingTemplate.class), mock(LatencyMonitor.class));
+
+    private final SubscriptionRegistry subscriptionRegistry = new SubscriptionRegistry();
+
+    private final WatchlistService watchlistService = new WatchlistService(messagingTemplate, priceBroadcaster, subscriptionRegistry,
+            new SimpleMeterRegistry(), 100, 8);
+
+    private final WebSocketService webSocketService = newWebSocketService();
+
+    @Test
+    void resyncSendsTheCurrentSnapshotOfATrackedSymbol() {
+        subscriptionRegistry.addViewer("AAPL", "session", symbol -> { });
+        priceBroadcaster.publish("AAPL", 227.5, 0, symbol -> true);
+        priceBroadcaster.flush();
+        priceBroadcaster.publish("AAPL", 227.6, 0, symbol -> true);
+        priceBroadcaster.flush();
+
+        webSocketService.resync("session", "AAPL").join();
+
+        ArgumentCaptor<SymbolSnapshot> snapshot = ArgumentCaptor.forClass(SymbolSnapshot.class);
+        verify(messagingTemplate).convertAndSend(eq(WebSocketService.SNAPSHOT_DESTINATION_PREFIX + "session"), snapshot.capture());
+        assertThat(snapshot.getValue().seq()).isEqualTo(2);
+        assertThat(snapshot.getValue().price()).isEqualTo(227.6);
+    }
+
+    @Test
+    void resyncRejectsSymbolsTheSessionIsNotTracking() {
+        subscriptionRegistry.addViewer("AAPL", "other", symbol -> { });
+        priceBroadcaster.publish("AAPL", 227.5, 0, symbol -> true);
+        priceBroadcaster.flush();
+
+        assertThatThrownBy(() -> webSocketService.resync("session", "AAPL").join())
+                .isInstanceOf(CompletionException.class)
+                .cause()
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void leavingAWatchlistForASingleSymbolReleasesTheWatchlist() {
+        subscriptionRegistry.addViewer("AAPL", "session", symbol -> { });
+        subscriptionRegistry.addViewer("MSFT", "session", symbol -> { });
+        watchlistService.addSession("session");
+        priceBroadcaster.publish("TSLA", 250.0, 0, symbol -> true);
+        priceBroadcaster.flush();
+
+        webSocketService.handleTrackingSymbol("session", null, "TSLA").join();
+
+        assertThat(subscriptionRegistry.symbolsOf("session")).containsExactly("TSLA");
+        watchlistService.onFlush(Map.of("TSLA", 251.0));
+        verify(messagingTemplate, never()).convertAndSend(eq(WatchlistService.UPDATES_DESTINATION_PREFIX + "session"), any(Object.class));
+    }
+
+    private WebSocketService newWebSocketService() {
+        FinnhubService finnhubService = mock(FinnhubService.class);
+        QuoteCacheService quoteCacheService = mock(QuoteCacheService.class);
+        SymbolLingerService symbolLingerService = new SymbolLingerService(new SimpleMeterRegistry(), 30, 100);
+        ClusterCoordinator clusterCoordinator = new ClusterCoordinator(finnhubService, priceBroadcaster, quoteCacheService,
+                subscriptionRegistry, symbolLingerService, null, null, new ObjectMapper(), new SimpleMeterRegistry(), false, 10_000, "test");
+
+        return new WebSocketService(messagingTemplate, quoteCacheService, clusterCoordinator,
+                new QuoteLookupService(finnhubService, new SimpleMeterRegistry(), 30, 100), priceBroadcaster, subscriptionRegistry,
+                symbolLingerService, mock(MarketStateService.class), watchlistService, Tracer.NOOP);
+    }
+}
@@ -0,0 +1,191 @@
+package com.baodo.stocktracker.stub;
+
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.websocket.WebsocketInbound;
+import reactor.netty.http.websocket.WebsocketOutbound;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the Finnhub REST and WebSocket APIs, so the app and tests can run offline.
+ * Serves /api/v1/quote and /api/v1/company-news with synthetic data; the symbol "INVALID" gets an empty quote, and the
+ * "from" date of every news request is recorded. While failing, both answer 503. The /ws endpoint records the frames
+ * clients send, and tests can push frames to or drop every open socket.
+ * Run standalone with the port as first argument and point the app at it with
+ * finnhub.api.base-url=http://localhost:{port}/api/v1 and finnhub.ws.url=ws://localhost:{port}/ws
+ */
+public class StubFinnhubServer implements AutoCloseable {
+    private final AtomicInteger quoteRequests = new AtomicInteger();
+
+    private final AtomicInteger newsRequests = new AtomicInteger();
+
+    private final List<String> newsFromDates = new CopyOnWriteArrayList<>();
+
+    private final List<String> receivedFrames = new CopyOnWriteArrayList<>();
+
+    private final List<StubWebSocket> webSockets = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger webSocketConnections = new AtomicInteger();
+
+    private volatile Duration latency = Duration.ZERO;
+
+    private volatile boolean failing;
+
+    private DisposableServer server;
+
+    public StubFinnhubServer start(int port) {
+        server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes
+                        .get("/api/v1/quote", this::quote)
+                        .get("/api/v1/company-news", this::companyNews)
+                        .ws("/ws", this::webSocket))
+                .bindNow();
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.port() + "/api/v1";
+    }
+
+    public String webSocketUrl() {
+        return "ws://localhost:" + server.port() + "/ws";
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public int getQuoteRequests() {
+        return quoteRequests.get();
+    }
+
+    public int getNewsRequests() {
+        return newsRequests.get();
+    }
+
+    public List<String> getNewsFromDates() {
+        return newsFromDates;
+    }
+
+    public List<String> getReceivedFrames() {
+        return receivedFrames;
+    }
+
+    public int getWebSocketConnections() {
+        return webSocketConnections.get();
+    }
+
+    public int getOpenWebSockets() {
+        return webSockets.size();
+    }
+
+    public void pushFrame(String frame) {
+        webSockets.forEach(webSocket -> webSocket.frames().tryEmitNext(frame));
+    }
+
+    public void dropWebSockets() {
+        webSockets.forEach(webSocket -> webSocket.outbound().sendClose().subscribe());
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private Mono<Void> quote(HttpServerRequest request, HttpServerResponse response) {
+        quoteRequests.incrementAndGet();
+        String symbol = queryParam(request, "symbol");
+
+        String body;
+        if (symbol == null || "INVALID".equals(symbol)) {
+            body = "{\"c\":0,\"d\":null,\"dp\":null,\"h\":0,\"l\":0,\"o\":0,\"pc\":0,\"t\":0}";
+        } else {
+            double price = 100 + Math.abs(symbol.hashCode() % 400);
+            body = String.format(Locale.ROOT, "{\"c\":%.2f,\"d\":0.5,\"dp\":0.25,\"h\":%.2f,\"l\":%.2f,\"o\":%.2f,\"pc\":%.2f,\"t\":%d}",
+                    price, price * 1.01, price * 0.99, price, price - 0.5, System.currentTimeMillis() / 1000);
+        }
+        return respond(response, body);
+    }
+
+    private Mono<Void> companyNews(HttpServerRequest request, HttpServerResponse response) {
+        newsRequests.incrementAndGet();
+        String symbol = queryParam(request, "symbol");
+        newsFromDates.add(String.valueOf(queryParam(request, "from")));
+        long now = System.currentTimeMillis() / 1000;
+
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append(String.format(Locale.ROOT,
+                    "{\"category\":\"company\",\"datetime\":%d,\"headline\":\"%s headline %d\",\"id\":%d,\"image\":\"https://example.com/%d.png\","
+                            + "\"related\":\"%s\",\"source\":\"Stub\",\"summary\":\"Summary of %s story %d\",\"url\":\"https://example.com/%d\"}",
+                    now - i * 600L, symbol, i, Math.abs((long) (symbol + i).hashCode()), i, symbol, symbol, i, i));
+        }
+        return respond(response, body.append(']').toString());
+    }
+
+    private Publisher<Void> webSocket(WebsocketInbound in, WebsocketOutbound out) {
+        StubWebSocket webSocket = new StubWebSocket(Sinks.many().unicast().onBackpressureBuffer(), out);
+        webSockets.add(webSocket);
+        webSocketConnections.incrementAndGet();
+
+        in.receive().asString().subscribe(receivedFrames::add,
+                ex -> webSocket.frames().tryEmitComplete(), () -> webSocket.frames().tryEmitComplete());
+        return out.sendString(webSocket.frames().asFlux())
+                .then()
+                .doFinally(signal -> webSockets.remove(webSocket));
+    }
+
+    private Mono<Void> respond(HttpServerResponse response, String body) {
+        if (failing) {
+            return Mono.delay(latency).then(response.status(503).send());
+        }
+        return Mono.delay(latency)
+                .then(response.header("Content-Type", "application/json").sendString(Mono.just(body)).then());
+    }
+
+    private static String queryParam(HttpServerRequest request, String name) {
+        String uri = request.uri();
+        int query = uri.indexOf('?');
+        if (query < 0) {
+            return null;
+        }
+        for (String pair : uri.substring(query + 1).split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return java.net.URLDecoder.decode(pair.substring(eq + 1), java.nio.charset.StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private record StubWebSocket(Sinks.Many<String> frames, WebsocketOutbound outbound) {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        try (StubFinnhubServer server = new StubFinnhubServer().start(port)) {
+            System.out.println("Stub Finnhub REST API listening at " + server.baseUrl());
+            Thread.currentThread().join();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.baodo.stocktracker.stub;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pushes Finnhub trade frames through a {@link StubFinnhubServer} at a configurable rate (trades/sec), on its own thread.
+ * Symbols are drawn either from a Zipf distribution over a symbol list (rank 1 trades most) or by cycling through
+ * the trades of recorded frames. Every price encodes the millisecond the trade was sent, so a client anywhere on the
+ * same clock can compute the feed-to-client latency with {@link #latencyMs} without any shared state.
+ */
+public class TradeFeed implements AutoCloseable {
+    // Prices are the send time modulo this many ms, in cents: 0.00 to 9999.99, wrapping every ~16 minutes
+    private static final long PRICE_CLOCK_MS = 1_000_000;
+
+    private static final long TICK_MS = 5;
+
+    private static final Pattern RECORDED_TRADE = Pattern.compile("\"s\":\"([^\"]+)\",\"t\":\\d+,\"v\":([0-9.]+)");
+
+    private final StubFinnhubServer server;
+
+    private final String[] symbols;
+
+    private final double[] volumes;
+
+    // Cumulative Zipf weights, null when cycling through recorded trades
+    private final double[] cumulative;
+
+    private final int tradesPerFrame;
+
+    private volatile int tradesPerSecond;
+
+    private volatile boolean running;
+
+    private volatile long sent;
+
+    private int recordedIndex;
+
+    private Thread thread;
+
+    private TradeFeed(StubFinnhubServer server, String[] symbols, double[] volumes, double[] cumulative, int tradesPerFrame) {
+        this.server = server;
+        this.symbols = symbols;
+        this.volumes = volumes;
+        this.cumulative = cumulative;
+        this.tradesPerFrame = tradesPerFrame;
+    }
+
+    public static TradeFeed synthetic(StubFinnhubServer server, List<String> symbols, double zipfExponent, int tradesPerFrame) {
+        double[] cumulative = new double[symbols.size()];
+        double total = 0;
+        for (int rank = 0; rank < cumulative.length; rank++) {
+            total += 1 / Math.pow(rank + 1, zipfExponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < cumulative.length; rank++) {
+            cumulative[rank] /= total;
+        }
+        return new TradeFeed(server, symbols.toArray(String[]::new), null, cumulative, tradesPerFrame);
+    }
+
+    /**
+     * Replays the symbol and volume sequence of recorded frames; prices and timestamps are replaced.
+     */
+    public static TradeFeed recorded(StubFinnhubServer server, List<String> frames, int tradesPerFrame) {
+        List<String> symbols = new ArrayList<>();
+        List<Double> volumes = new ArrayList<>();
+        for (String frame : frames) {
+            Matcher trade = RECORDED_TRADE.matcher(frame);
+            while (trade.find()) {
+                symbols.add(trade.group(1));
+                volumes.add(Double.parseDouble(trade.group(2)));
+            }
+        }
+        if (symbols.isEmpty()) {
+            throw new IllegalArgumentException("No trades in the recorded frames");
+        }
+        return new TradeFeed(server, symbols.toArray(String[]::new), volumes.stream().mapToDouble(Double::doubleValue).toArray(), null, tradesPerFrame);
+    }
+
+    /**
+     * Distinct symbols the feed trades, most active first for a synthetic feed.
+     */
+    public List<String> symbols() {
+        return Arrays.stream(symbols).distinct().toList();
+    }
+
+    public TradeFeed start(int tradesPerSecond) {
+        this.tradesPerSecond = tradesPerSecond;
+        running = true;
+        thread = new Thread(this::run, "trade-feed");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    public void setRate(int tradesPerSecond) {
+        this.tradesPerSecond = tradesPerSecond;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Milliseconds since the trade behind a price from this feed was sent.
+     */
+    public static long latencyMs(double price) {
+        long sentClock = Math.round(price * 100);
+        return Math.floorMod(System.currentTimeMillis() % PRICE_CLOCK_MS - sentClock, PRICE_CLOCK_MS);
+    }
+
+    private void run() {
+        // Trades owed are recomputed from the rate every tick, so rate changes apply immediately
+        long last = System.nanoTime();
+        double owed = 0;
+        while (running) {
+            long now = System.nanoTime();
+            owed += tradesPerSecond * (now - last) / 1e9;
+            last = now;
+            while (owed >= 1) {
+                int trades = (int) Math.min(owed, tradesPerFrame);
+                server.pushFrame(frame(trades));
+                owed -= trades;
+            }
+            try {
+                Thread.sleep(TICK_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private String frame(int trades) {
+        long now = System.currentTimeMillis();
+        String price = String.format(Locale.ROOT, "%.2f", (now % PRICE_CLOCK_MS) / 100.0);
+        StringBuilder frame = new StringBuilder(trades * 64 + 32).append("{\"data\":[");
+        for (int i = 0; i < trades; i++) {
+            int index = nextIndex();
+            if (i > 0) {
+                frame.append(',');
+            }
+            frame.append("{\"p\":").append(price)
+                    .append(",\"s\":\"").append(symbols[index])
+                    .append("\",\"t\":").append(now)
+                    .append(",\"v\":").append(volumes == null ? 100 : volumes[index])
+                    .append('}');
+        }
+        sent += trades;
+        return frame.append("],\"type\":\"trade\"}").toString();
+    }
+
+    private int nextIndex() {
+        if (cumulative == null) {
+            int index = recordedIndex;
+            recordedIndex = (recordedIndex + 1) % symbols.length;
+            return index;
+        }
+        int rank = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+        return Math.min(rank >= 0 ? rank : -rank - 1, symbols.length - 1);
+    }
+}